@@ -26,6 +26,9 @@ create table user
     tags         varchar(1024) null comment '标签 json 列表'
 ) comment '用户';
 
+-- 按更新时间追增量（用户标签索引快照加载后使用）
+create index idx_updateTime on user (updateTime);
+
 -- 队伍表
 create table team
 (
@@ -74,4 +77,17 @@ create table tag
 
 
 create index idx_userId
-    on tag (userId);
\ No newline at end of file
+    on tag (userId);
+
+-- 用户标签关系表（由 user.tags 同步，用于按标签搜索用户）
+create table user_tag
+(
+    userId     bigint not null comment '用户 id',
+    tagId      bigint not null comment '标签 id',
+    createTime datetime default CURRENT_TIMESTAMP null comment '创建时间',
+    primary key (userId, tagId)
+) comment '用户标签关系';
+
+-- 按标签查用户
+create index idx_tagId_userId
+    on user_tag (tagId, userId);
\ No newline at end of file
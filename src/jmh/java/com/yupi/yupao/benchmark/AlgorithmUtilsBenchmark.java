@@ -0,0 +1,88 @@
+package com.yupi.yupao.benchmark;
+
+import com.yupi.yupao.utils.AlgorithmUtils;
+import com.yupi.yupao.utils.TagDictionary;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 编辑距离基准测试：字符串标签列表 vs int 标签 id，带阈值的提前终止，以及单个字符串的编辑距离
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class AlgorithmUtilsBenchmark {
+
+    /**
+     * 预先生成的用户对数
+     */
+    private static final int PAIR_COUNT = 1024;
+
+    /**
+     * 阈值（模拟 Top-K 已经填满后第 k 名的距离）
+     */
+    @Param({"2"})
+    private int maxDistance;
+
+    private List<String>[] tagLists;
+
+    private int[][] tagIds;
+
+    private int index;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        SyntheticUsers syntheticUsers = new SyntheticUsers(1);
+        TagDictionary tagDictionary = new TagDictionary();
+        tagLists = new List[PAIR_COUNT * 2];
+        tagIds = new int[PAIR_COUNT * 2][];
+        for (int i = 0; i < tagLists.length; i++) {
+            tagLists[i] = syntheticUsers.nextTagList();
+            tagIds[i] = tagDictionary.encode(tagLists[i]);
+        }
+    }
+
+    @Benchmark
+    public int string() {
+        int i = nextIndex();
+        return AlgorithmUtils.minDistance(tagLists[i].get(0), tagLists[i + 1].get(0));
+    }
+
+    @Benchmark
+    public int stringList() {
+        int i = nextIndex();
+        return AlgorithmUtils.minDistance(tagLists[i], tagLists[i + 1]);
+    }
+
+    @Benchmark
+    public int stringListWithThreshold() {
+        int i = nextIndex();
+        return AlgorithmUtils.minDistance(tagLists[i], tagLists[i + 1], maxDistance);
+    }
+
+    @Benchmark
+    public int tagIds() {
+        int i = nextIndex();
+        return AlgorithmUtils.minDistance(tagIds[i], tagIds[i + 1]);
+    }
+
+    @Benchmark
+    public int tagIdsWithThreshold() {
+        int i = nextIndex();
+        return AlgorithmUtils.minDistance(tagIds[i], tagIds[i + 1], maxDistance);
+    }
+
+    private int nextIndex() {
+        index = (index + 2) & (PAIR_COUNT * 2 - 1);
+        return index;
+    }
+}
@@ -0,0 +1,118 @@
+package com.yupi.yupao.benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.yupi.yupao.manager.MatchScoringManager;
+import com.yupi.yupao.manager.UserTagIndexManager;
+import com.yupi.yupao.utils.AlgorithmUtils;
+import com.yupi.yupao.utils.TopKCollector;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 用户匹配端到端打分基准测试（不含数据库查询）
+ * 对比原来的全量扫描（解析 json + 全量排序）与倒排索引 + 并行 Top-K 打分
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class MatchUsersBenchmark {
+
+    private static final int NUM = 20;
+
+    private static final int CALLER_COUNT = 64;
+
+    @Param({"10000", "100000", "1000000"})
+    private int population;
+
+    private String[] tagJsons;
+
+    private UserTagIndexManager userTagIndexManager;
+
+    private MatchScoringManager sequentialScoringManager;
+
+    private MatchScoringManager parallelScoringManager;
+
+    private int callerIndex;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        tagJsons = new SyntheticUsers(3).nextTagJsons(population);
+        userTagIndexManager = new UserTagIndexManager();
+        for (int i = 0; i < population; i++) {
+            userTagIndexManager.updateUserTags(i + 1, tagJsons[i]);
+        }
+        sequentialScoringManager = new MatchScoringManager(1, 1, Integer.MAX_VALUE);
+        parallelScoringManager = new MatchScoringManager(Runtime.getRuntime().availableProcessors(), 4, 2048);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sequentialScoringManager.shutdown();
+        parallelScoringManager.shutdown();
+    }
+
+    /**
+     * 原来的实现：全部用户解析 json、计算距离、排序后取前 num 个
+     */
+    @Benchmark
+    public List<Long> legacyScan() {
+        long callerId = nextCallerId();
+        Gson gson = new Gson();
+        List<String> tagList = gson.fromJson(tagJsons[(int) callerId - 1], new TypeToken<List<String>>() {
+        }.getType());
+        List<long[]> list = new ArrayList<>();
+        for (int i = 0; i < population; i++) {
+            long userId = i + 1;
+            if (userId == callerId) {
+                continue;
+            }
+            List<String> userTags = gson.fromJson(tagJsons[i], new TypeToken<List<String>>() {
+            }.getType());
+            list.add(new long[]{userId, AlgorithmUtils.minDistance(tagList, userTags)});
+        }
+        return list.stream()
+                .sorted((a, b) -> (int) (a[1] - b[1]))
+                .limit(NUM)
+                .map(pair -> pair[0])
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public long[] indexedSequential() {
+        return indexed(sequentialScoringManager);
+    }
+
+    @Benchmark
+    public long[] indexedParallel() {
+        return indexed(parallelScoringManager);
+    }
+
+    private long[] indexed(MatchScoringManager matchScoringManager) {
+        long callerId = nextCallerId();
+        int[] tagIds = userTagIndexManager.getUserTagIds(callerId);
+        Set<Long> candidateIdSet = userTagIndexManager.getCandidateUserIds(tagIds);
+        candidateIdSet.remove(callerId);
+        long[] candidateIds = candidateIdSet.stream().mapToLong(Long::longValue).toArray();
+        TopKCollector topKCollector = matchScoringManager.score(tagIds, candidateIds,
+                userTagIndexManager::getUserTagIds, NUM);
+        return topKCollector.getSortedIds();
+    }
+
+    private long nextCallerId() {
+        callerIndex = (callerIndex + 1) % CALLER_COUNT;
+        // 调用者均匀分布在整个用户区间
+        return (long) callerIndex * (population / CALLER_COUNT) + 1;
+    }
+}
@@ -0,0 +1,70 @@
+package com.yupi.yupao.benchmark;
+
+import com.yupi.yupao.model.dto.CacheEntry;
+import com.yupi.yupao.model.dto.RecommendCacheEntry;
+import com.yupi.yupao.utils.RedisValueSerializer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis 值序列化基准测试（每条缓存的耗时，字节数在准备阶段打印）
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RedisValueSerializerBenchmark {
+
+    @Param({"LEGACY", "JDK", "JSON"})
+    private String codec;
+
+    @Param({"0", "1024"})
+    private int compressThreshold;
+
+    /**
+     * 推荐缓存的用户数（recommendMaxSize 默认 1000）
+     */
+    @Param({"20", "1000"})
+    private int size;
+
+    private RedisValueSerializer serializer;
+
+    private CacheEntry entry;
+
+    private byte[] bytes;
+
+    @Setup
+    public void setup() {
+        serializer = new RedisValueSerializer(RedisValueSerializer.Codec.of(codec), compressThreshold);
+        long[] userIds = new long[size];
+        for (int i = 0; i < size; i++) {
+            userIds[i] = 100000 + i * 7L;
+        }
+        RecommendCacheEntry recommendCacheEntry = new RecommendCacheEntry();
+        recommendCacheEntry.setUserIds(userIds);
+        recommendCacheEntry.setTotal(size * 3L);
+        entry = new CacheEntry();
+        entry.setValue(recommendCacheEntry);
+        entry.setSoftExpireTime(System.currentTimeMillis() + 30000);
+        entry.setHardExpireTime(System.currentTimeMillis() + 300000);
+        entry.setLoadMillis(12);
+        bytes = serializer.serialize(entry);
+        System.out.printf("%n%s compressThreshold=%d size=%d: %d bytes%n", codec, compressThreshold, size, bytes.length);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(entry);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return serializer.deserialize(bytes);
+    }
+}
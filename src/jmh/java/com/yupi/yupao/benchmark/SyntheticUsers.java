@@ -0,0 +1,106 @@
+package com.yupi.yupao.benchmark;
+
+import com.google.gson.Gson;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 基准测试用的模拟用户标签数据
+ * 标签热度服从 Zipf 分布（少数标签如 Java、大一 非常常见），每个用户 1 ~ 10 个标签且大多为 3 ~ 5 个
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+public class SyntheticUsers {
+
+    /**
+     * 标签词表大小
+     */
+    public static final int VOCABULARY_SIZE = 2000;
+
+    private static final double ZIPF_EXPONENT = 1.1;
+
+    /**
+     * 用户标签数的分布（下标即标签数）
+     */
+    private static final double[] TAG_COUNT_WEIGHTS = {0, 4, 8, 18, 22, 18, 12, 8, 5, 3, 2};
+
+    private final Random random;
+
+    private final String[] vocabulary = new String[VOCABULARY_SIZE];
+
+    private final double[] zipfCdf = new double[VOCABULARY_SIZE];
+
+    private final double[] tagCountCdf = new double[TAG_COUNT_WEIGHTS.length];
+
+    public SyntheticUsers(long seed) {
+        this.random = new Random(seed);
+        for (int i = 0; i < VOCABULARY_SIZE; i++) {
+            vocabulary[i] = "tag" + i;
+        }
+        double sum = 0;
+        for (int i = 0; i < VOCABULARY_SIZE; i++) {
+            sum += 1 / Math.pow(i + 1, ZIPF_EXPONENT);
+            zipfCdf[i] = sum;
+        }
+        for (int i = 0; i < VOCABULARY_SIZE; i++) {
+            zipfCdf[i] /= sum;
+        }
+        sum = 0;
+        for (int i = 0; i < TAG_COUNT_WEIGHTS.length; i++) {
+            sum += TAG_COUNT_WEIGHTS[i];
+            tagCountCdf[i] = sum;
+        }
+        for (int i = 0; i < tagCountCdf.length; i++) {
+            tagCountCdf[i] /= sum;
+        }
+    }
+
+    /**
+     * 生成一个用户的标签列表（不重复）
+     *
+     * @return
+     */
+    public List<String> nextTagList() {
+        int tagCount = sample(tagCountCdf);
+        Set<String> tagSet = new LinkedHashSet<>();
+        while (tagSet.size() < tagCount) {
+            tagSet.add(vocabulary[sample(zipfCdf)]);
+        }
+        return new ArrayList<>(tagSet);
+    }
+
+    /**
+     * 生成 size 个用户的标签 json，与数据库中 user.tags 字段格式一致
+     *
+     * @param size
+     * @return
+     */
+    public String[] nextTagJsons(int size) {
+        Gson gson = new Gson();
+        String[] tagJsons = new String[size];
+        for (int i = 0; i < size; i++) {
+            tagJsons[i] = gson.toJson(nextTagList());
+        }
+        return tagJsons;
+    }
+
+    private int sample(double[] cdf) {
+        double value = random.nextDouble();
+        int low = 0;
+        int high = cdf.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cdf[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,69 @@
+package com.yupi.yupao.benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.yupi.yupao.manager.UserTagIndexManager;
+import com.yupi.yupao.utils.TagDictionary;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 标签 json 解析基准测试
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TagParseBenchmark {
+
+    private static final int TAG_JSON_COUNT = 1024;
+
+    private String[] tagJsons;
+
+    private TagDictionary tagDictionary;
+
+    private Gson gson;
+
+    private int index;
+
+    @Setup
+    public void setup() {
+        tagJsons = new SyntheticUsers(2).nextTagJsons(TAG_JSON_COUNT);
+        tagDictionary = new TagDictionary();
+        gson = new Gson();
+    }
+
+    /**
+     * 原来 matchUsers 中的写法：每次都创建 TypeToken
+     */
+    @Benchmark
+    public List<String> gsonTypeToken() {
+        return gson.fromJson(nextTagJson(), new TypeToken<List<String>>() {
+        }.getType());
+    }
+
+    @Benchmark
+    public List<String> parseTags() {
+        return UserTagIndexManager.parseTags(nextTagJson());
+    }
+
+    /**
+     * 解析并编码为标签 id（更新索引时的开销）
+     */
+    @Benchmark
+    public int[] parseAndEncode() {
+        return tagDictionary.encode(UserTagIndexManager.parseTags(nextTagJson()));
+    }
+
+    private String nextTagJson() {
+        index = (index + 1) & (TAG_JSON_COUNT - 1);
+        return tagJsons[index];
+    }
+}
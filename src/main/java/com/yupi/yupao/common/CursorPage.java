@@ -0,0 +1,65 @@
+package com.yupi.yupao.common;
+
+import com.yupi.yupao.exception.BusinessException;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * 游标分页结果（按主键 id > 游标 seek，不用 OFFSET 跳过前面的行）
+ *
+ * @param <T>
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+@Data
+public class CursorPage<T> implements Serializable {
+
+    private List<T> records;
+
+    /**
+     * 下一页的游标，为 null 表示没有更多数据
+     */
+    private String nextCursor;
+
+    /**
+     * 总数，请求不查询总数（searchCount = false）时为 null
+     */
+    private Long total;
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 把本页最后一条的 id 编码为游标（调用方不应依赖游标的格式）
+     *
+     * @param lastId
+     * @return
+     */
+    public static String encodeCursor(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(String.valueOf(lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标
+     *
+     * @param cursor 为空表示第一页
+     * @return 上一页最后一条的 id，第一页返回 0
+     */
+    public static long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return 0;
+        }
+        try {
+            long lastId = Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+            if (lastId < 0) {
+                throw new NumberFormatException();
+            }
+            return lastId;
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "游标无效");
+        }
+    }
+}
@@ -24,4 +24,14 @@ public class PageRequest implements Serializable {
      * 当前是第几页
      */
     protected int pageNum = 1;
+
+    /**
+     * 游标（上一页返回的 nextCursor），用于游标分页，为空表示第一页
+     */
+    protected String cursor;
+
+    /**
+     * 是否查询总数，不需要总数时关闭可省掉一次 COUNT(*)
+     */
+    protected boolean searchCount = true;
 }
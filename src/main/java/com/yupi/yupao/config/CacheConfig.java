@@ -0,0 +1,83 @@
+package com.yupi.yupao.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 二级缓存（本地 Caffeine + Redis）配置
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+@Configuration
+@ConfigurationProperties(prefix = "yupao.cache")
+@Data
+public class CacheConfig {
+
+    /**
+     * 本地缓存的最大条数
+     */
+    private long localMaxSize = 10000;
+
+    /**
+     * 本地缓存过期时间（毫秒），只用于挡住热点的重复读取，应远小于 Redis 中的过期时间
+     */
+    private long localExpireMillis = 5000;
+
+    /**
+     * 推荐用户缓存的软过期时间（毫秒），过后返回旧值并在后台刷新
+     */
+    private long recommendExpireMillis = 30000;
+
+    /**
+     * 推荐用户缓存的硬过期时间（毫秒，即 Redis 中的过期时间），过后同步加载
+     */
+    private long recommendHardExpireMillis = 5 * 60 * 1000;
+
+    /**
+     * 缓存的推荐用户 id 数，翻页超出后直接查数据库
+     */
+    private int recommendMaxSize = 1000;
+
+    /**
+     * 缓存未命中时等待其他节点重建的最长时间（毫秒），超时后自己加载
+     */
+    private long singleFlightLockWaitMillis = 3000;
+
+    /**
+     * 重建锁的租约（毫秒），应略大于一次加载的耗时
+     */
+    private long singleFlightLockLeaseMillis = 5000;
+
+    /**
+     * 软过期前提前刷新（XFetch）的系数，越大越早刷新，0 为关闭
+     */
+    private double earlyRefreshBeta = 1.0;
+
+    /**
+     * 后台刷新的线程数
+     */
+    private int refreshThreads = 2;
+
+    /**
+     * 后台刷新的排队任务数，排满后不再提交（旧值在硬过期前仍然可用）
+     */
+    private int refreshQueueSize = 1000;
+
+    /**
+     * 预热缓存在下一次预热之后再保留的时间（毫秒）
+     */
+    private long warmUpExpireSlackMillis = 30 * 60 * 1000;
+
+    /**
+     * Redis 值的写入编码：legacy（旧版本的 JDK 序列化）、jdk、json，读取时自动识别
+     * 默认 legacy，未升级的节点也能读取；全部节点升级后再切换为 json
+     */
+    private String valueCodec = "legacy";
+
+    /**
+     * Redis 值编码后超过该字节数时用 LZ4 压缩，0 为不压缩
+     */
+    private int valueCompressThreshold = 1024;
+}
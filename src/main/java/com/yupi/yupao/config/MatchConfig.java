@@ -0,0 +1,145 @@
+package com.yupi.yupao.config;
+
+import com.yupi.yupao.manager.MatchScoringManager;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 用户匹配配置
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+@Configuration
+@ConfigurationProperties(prefix = "yupao.match")
+@Data
+public class MatchConfig {
+
+    /**
+     * 打分线程池并行度，默认为 CPU 核数
+     */
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * 单个匹配请求最多切分的任务数，防止一个请求占满线程池
+     */
+    private int maxTasksPerRequest = 4;
+
+    /**
+     * 每个任务最少的候选用户数，候选太少时直接在请求线程中打分
+     */
+    private int minPartitionSize = 2048;
+
+    /**
+     * 默认匹配模式 0 - 精确，1 - 近似（请求未指定时使用）
+     */
+    private int defaultMode = 0;
+
+    /**
+     * 是否构建 MinHash LSH 索引（关闭时近似匹配退化为精确匹配）
+     */
+    private boolean lshEnabled = false;
+
+    /**
+     * LSH band 数，越大召回率越高、候选越多
+     */
+    private int lshBands = 16;
+
+    /**
+     * LSH 每个 band 的行数，越大候选越少、召回率越低
+     */
+    private int lshRows = 3;
+
+    /**
+     * 近似匹配时同时计算精确结果以统计召回率的抽样比例
+     */
+    private double lshRecallSampleRate = 0.01;
+
+    /**
+     * 是否缓存匹配结果
+     */
+    private boolean cacheEnabled = true;
+
+    /**
+     * 本地缓存的最大条数
+     */
+    private long cacheLocalMaxSize = 10000;
+
+    /**
+     * 匹配结果缓存过期时间（秒）
+     */
+    private long cacheExpireSeconds = 600;
+
+    /**
+     * 标签变更日志保留的条数，早于日志的缓存直接失效
+     */
+    private long cacheChangeLogSize = 10000;
+
+    /**
+     * 预计算匹配结果的活跃用户范围：最近多少天内登录过
+     */
+    private int precomputeActiveDays = 7;
+
+    /**
+     * 预计算每批的用户数（每批一次 Redis pipeline 写入）
+     */
+    private int precomputeBatchSize = 500;
+
+    /**
+     * 预计算并行的批数
+     */
+    private int precomputeParallelism = 4;
+
+    /**
+     * 预计算结果的过期时间（秒），需大于任务执行间隔
+     */
+    private long precomputeExpireSeconds = 2 * 24 * 60 * 60;
+
+    /**
+     * 是否使用本地快照加速标签索引的启动
+     */
+    private boolean snapshotEnabled = true;
+
+    /**
+     * 标签索引快照文件路径
+     */
+    private String snapshotPath = "data/user-tag-index.snapshot";
+
+    /**
+     * 写快照、追增量的间隔（毫秒）
+     */
+    private long snapshotIntervalMillis = 10 * 60 * 1000;
+
+    /**
+     * 按 updateTime 追增量时向前多查的秒数（容忍时钟误差）
+     */
+    private int syncSlackSeconds = 60;
+
+    /**
+     * 是否按标签层级（tag 表的 parentId）计算相近标签的相似度
+     * 开启后距离单位变为 TagHierarchyManager.DISTANCE_SCALE，切换时需要递增匹配缓存的 epoch
+     */
+    private boolean hierarchyEnabled = false;
+
+    /**
+     * 树上每隔一条边相似度的衰减系数
+     */
+    private double hierarchyDecay = 0.5;
+
+    /**
+     * 树上距离超过该值的标签视为无关
+     */
+    private int hierarchyMaxHops = 2;
+
+    /**
+     * 增量刷新标签层级的间隔（毫秒）
+     */
+    private long hierarchyRefreshMillis = 60 * 1000;
+
+    @Bean(destroyMethod = "shutdown")
+    public MatchScoringManager matchScoringManager() {
+        return new MatchScoringManager(parallelism, maxTasksPerRequest, minPartitionSize);
+    }
+}
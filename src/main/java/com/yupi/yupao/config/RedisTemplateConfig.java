@@ -1,9 +1,11 @@
 package com.yupi.yupao.config;
 
+import com.yupi.yupao.utils.RedisValueSerializer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.RedisSerializer;
 
 /**
@@ -18,10 +20,22 @@ public class RedisTemplateConfig {
     // https://space.bilibili.com/12890453/
 
     @Bean
-    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory) {
+    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory, CacheConfig cacheConfig) {
         RedisTemplate<String, Object> redisTemplate = new RedisTemplate<>();
         redisTemplate.setConnectionFactory(connectionFactory);
         redisTemplate.setKeySerializer(RedisSerializer.string());
+        redisTemplate.setValueSerializer(new RedisValueSerializer(
+                RedisValueSerializer.Codec.of(cacheConfig.getValueCodec()), cacheConfig.getValueCompressThreshold()));
         return redisTemplate;
     }
+
+    /**
+     * Redis 发布订阅监听容器（二级缓存的失效通知）
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
 }
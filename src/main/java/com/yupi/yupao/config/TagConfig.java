@@ -0,0 +1,68 @@
+package com.yupi.yupao.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 标签配置
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+@Configuration
+@ConfigurationProperties(prefix = "yupao.tag")
+@Data
+public class TagConfig {
+
+    /**
+     * 更新用户时是否同步维护 user_tag 关系表，关闭时更新用户不写 tag、user_tag 表（Redis 标签索引开启时仍会写 tag 表）
+     * 关闭期间关系表不再更新，重新开启后需要再执行一次回填
+     */
+    private boolean userTagSyncEnabled = false;
+
+    /**
+     * 倒排索引未就绪时，是否通过 user_tag 关系表按索引查询（需开启 userTagSyncEnabled 并完成 user_tag 回填）
+     */
+    private boolean userTagSearchEnabled = false;
+
+    /**
+     * 是否维护标签位图索引（布尔表达式搜索），关闭时表达式搜索回退到全表扫描
+     */
+    private boolean bitmapEnabled = true;
+
+    /**
+     * 是否维护 Redis 标签索引（多节点共享），全量校对完成后搜索优先使用
+     */
+    private boolean redisIndexEnabled = false;
+
+    /**
+     * 校对 Redis 标签索引时每批读取的用户数
+     */
+    private int redisIndexRepairBatchSize = 1000;
+
+    /**
+     * 每个前缀最多返回的补全标签数
+     */
+    private int suggestMaxSize = 10;
+
+    /**
+     * 后台重建补全字典树的间隔（毫秒）
+     */
+    private long suggestRefreshMillis = 300000;
+
+    /**
+     * 标签纠错的最大编辑距离（实际不超过标签长度的一半），0 为关闭
+     */
+    private int fuzzyRadius = 2;
+
+    /**
+     * 是否维护标签统计（每个标签的用户数、标签共现数）
+     */
+    private boolean facetEnabled = true;
+
+    /**
+     * 标签统计接口每类最多返回的数量
+     */
+    private int facetMaxSize = 100;
+}
@@ -25,4 +25,27 @@ public interface UserConstant {
      */
     int ADMIN_ROLE = 1;
 
+    //  ------- 匹配 --------
+
+    /**
+     * 单次最多匹配的用户数
+     */
+    int MATCH_MAX_NUM = 20;
+
+    /**
+     * 搜索用户时每页最多的用户数
+     */
+    int SEARCH_MAX_PAGE_SIZE = 100;
+
+    /**
+     * 活跃用户（member 为用户 id，score 为最近登录时间戳）
+     */
+    String USER_ACTIVE_KEY = "yupao:user:active";
+
+    /**
+     * 推荐用户缓存（推荐结果与用户无关，所有用户共享一份）
+     * 值的格式变化时升级版本号，滚动发布期间新旧节点不读取对方格式的值（v1 为旧版本按用户缓存的 Page<User>）
+     */
+    String USER_RECOMMEND_KEY = "yupao:user:recommend:v2";
+
 }
@@ -0,0 +1,87 @@
+package com.yupi.yupao.controller;
+
+import com.yupi.yupao.common.BaseResponse;
+import com.yupi.yupao.common.ErrorCode;
+import com.yupi.yupao.common.ResultUtils;
+import com.yupi.yupao.config.TagConfig;
+import com.yupi.yupao.exception.BusinessException;
+import com.yupi.yupao.manager.TagFacetManager;
+import com.yupi.yupao.manager.TagSuggestManager;
+import com.yupi.yupao.model.vo.TagFacetVO;
+import com.yupi.yupao.service.UserService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.*;
+
+import javax.annotation.Resource;
+import javax.servlet.http.HttpServletRequest;
+import java.util.List;
+
+/**
+ * 标签接口
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+@RestController
+@RequestMapping("/tag")
+@CrossOrigin(origins = {"http://localhost:3000"})
+@Slf4j
+public class TagController {
+
+    @Resource
+    private TagSuggestManager tagSuggestManager;
+
+    @Resource
+    private TagFacetManager tagFacetManager;
+
+    @Resource
+    private UserService userService;
+
+    @Resource
+    private TagConfig tagConfig;
+
+    /**
+     * 标签补全
+     *
+     * @param prefix 为空时返回最热门的标签
+     * @param size   不传时返回配置的最大数量
+     * @return 按使用人数降序的标签名
+     */
+    @GetMapping("/suggest")
+    public BaseResponse<List<String>> suggestTags(String prefix, Integer size) {
+        int maxSize = tagConfig.getSuggestMaxSize();
+        if (size == null) {
+            size = maxSize;
+        }
+        if (size <= 0 || size > maxSize) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR);
+        }
+        List<String> tagNameList = tagSuggestManager.suggest(prefix == null ? "" : prefix.trim(), size);
+        return ResultUtils.success(tagNameList);
+    }
+
+    /**
+     * 标签统计（仅管理员）
+     *
+     * @param size    标签、标签对各返回的数量
+     * @param request
+     * @return
+     */
+    @GetMapping("/facet")
+    public BaseResponse<TagFacetVO> getTagFacet(Integer size, HttpServletRequest request) {
+        if (!userService.isAdmin(request)) {
+            throw new BusinessException(ErrorCode.NO_AUTH);
+        }
+        if (!tagFacetManager.isEnabled()) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "标签统计未开启");
+        }
+        int maxSize = tagConfig.getFacetMaxSize();
+        if (size == null) {
+            size = maxSize;
+        }
+        if (size <= 0 || size > maxSize) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR);
+        }
+        return ResultUtils.success(tagFacetManager.getTagFacet(size));
+    }
+}
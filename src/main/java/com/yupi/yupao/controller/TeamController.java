@@ -3,6 +3,7 @@ package com.yupi.yupao.controller;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.yupi.yupao.common.BaseResponse;
+import com.yupi.yupao.common.CursorPage;
 import com.yupi.yupao.common.ErrorCode;
 import com.yupi.yupao.common.ResultUtils;
 import com.yupi.yupao.exception.BusinessException;
@@ -176,9 +177,10 @@ public class TeamController {
         }
         Team team = new Team();
         // 将前端查询实体类转为本地类进行查询操作
-        BeanUtils.copyProperties(team, teamQuery);
+        BeanUtils.copyProperties(teamQuery, team);
         QueryWrapper<Team> queryWrapper = new QueryWrapper<>(team);
-        Page<Team> page = new Page<>(teamQuery.getPageNum(), teamQuery.getPageSize());
+        // searchCount 为 false 时不执行 COUNT(*)
+        Page<Team> page = new Page<>(teamQuery.getPageNum(), teamQuery.getPageSize(), teamQuery.isSearchCount());
         Page<Team> teamPage = teamService.page(page, queryWrapper);
 
         if(teamPage == null){
@@ -188,6 +190,16 @@ public class TeamController {
 
     }
 
+    // 按游标分页查询队伍，深分页不用 OFFSET
+    @PostMapping("/list/cursor")
+    public BaseResponse<CursorPage<Team>> listTeamsByCursor(@RequestBody TeamQuery teamQuery){
+        if(teamQuery ==  null){
+            throw new BusinessException(ErrorCode.PARAMS_ERROR);
+        }
+        CursorPage<Team> teamPage = teamService.listTeamsByCursor(teamQuery);
+        return ResultUtils.success(teamPage);
+    }
+
     // 获取我创建的队伍
     @PostMapping("/list/my")
     public BaseResponse<List<TeamUserVO>> getMyTeams(@RequestBody TeamQuery teamQuery, HttpServletRequest request){
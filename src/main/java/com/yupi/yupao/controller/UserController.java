@@ -3,25 +3,30 @@ package com.yupi.yupao.controller;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.yupi.yupao.common.BaseResponse;
+import com.yupi.yupao.common.CursorPage;
 import com.yupi.yupao.common.ErrorCode;
+import com.yupi.yupao.common.PageRequest;
 import com.yupi.yupao.common.ResultUtils;
+import com.yupi.yupao.constant.UserConstant;
 import com.yupi.yupao.exception.BusinessException;
+import com.yupi.yupao.manager.MatchLshManager;
+import com.yupi.yupao.manager.TwoLevelCacheManager;
 import com.yupi.yupao.model.domain.User;
+import com.yupi.yupao.model.dto.UserTagQuery;
+import com.yupi.yupao.model.enums.MatchModeEnum;
 import com.yupi.yupao.model.request.UserLoginRequest;
 import com.yupi.yupao.model.request.UserRegisterRequest;
+import com.yupi.yupao.model.vo.CacheStatsVO;
+import com.yupi.yupao.model.vo.MatchLshStatsVO;
 import com.yupi.yupao.service.UserService;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.core.ValueOperations;
 import org.springframework.util.CollectionUtils;
 import org.springframework.web.bind.annotation.*;
 
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 
 import static com.yupi.yupao.constant.UserConstant.USER_LOGIN_STATE;
 
@@ -41,7 +46,10 @@ public class UserController {
     private UserService userService;
 
     @Resource
-    private RedisTemplate<String, Object> redisTemplate;
+    private MatchLshManager matchLshManager;
+
+    @Resource
+    private TwoLevelCacheManager twoLevelCacheManager;
 
     @PostMapping("/register")
     public BaseResponse<Long> userRegister(@RequestBody UserRegisterRequest userRegisterRequest) {
@@ -101,12 +109,7 @@ public class UserController {
         if (!userService.isAdmin(request)) {
             throw new BusinessException(ErrorCode.PARAMS_ERROR);
         }
-        QueryWrapper<User> queryWrapper = new QueryWrapper<>();
-        if (StringUtils.isNotBlank(username)) {
-            queryWrapper.like("username", username);
-        }
-        List<User> userList = userService.list(queryWrapper);
-        List<User> list = userList.stream().map(user -> userService.getSafetyUser(user)).collect(Collectors.toList());
+        List<User> list = userService.searchUsersByUsername(username);
         return ResultUtils.success(list);
     }
 
@@ -119,26 +122,47 @@ public class UserController {
         return ResultUtils.success(userList);
     }
 
+    /**
+     * 根据标签布尔表达式分页搜索用户，如 (Java OR Go) AND NOT 大一
+     *
+     * @param userTagQuery
+     * @return
+     */
+    @GetMapping("/search/tags/expression")
+    public BaseResponse<Page<User>> searchUsersByTagExpression(UserTagQuery userTagQuery) {
+        if (userTagQuery == null || StringUtils.isBlank(userTagQuery.getExpression())) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR);
+        }
+        int pageSize = userTagQuery.getPageSize();
+        if (pageSize <= 0 || pageSize > UserConstant.SEARCH_MAX_PAGE_SIZE || userTagQuery.getPageNum() <= 0) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR);
+        }
+        Page<User> userPage = userService.searchUsersByTagExpression(userTagQuery.getExpression(),
+                userTagQuery.getPageNum(), pageSize);
+        return ResultUtils.success(userPage);
+    }
+
     // todo 推荐多个，未实现
     @GetMapping("/recommend")
     public BaseResponse<Page<User>> recommendUsers(long pageSize, long pageNum, HttpServletRequest request) {
-        User loginUser = userService.getLoginUser(request);
-        String redisKey = String.format("yupao:user:recommend:%s", loginUser.getId());
-        ValueOperations<String, Object> valueOperations = redisTemplate.opsForValue();
-        // 如果有缓存，直接读缓存
-        Page<User> userPage = (Page<User>) valueOperations.get(redisKey);
-        if (userPage != null) {
-            return ResultUtils.success(userPage);
-        }
-        // 无缓存，查数据库
-        QueryWrapper<User> queryWrapper = new QueryWrapper<>();
-        userPage = userService.page(new Page<>(pageNum, pageSize), queryWrapper);
-        // 写缓存
-        try {
-            valueOperations.set(redisKey, userPage, 30000, TimeUnit.MILLISECONDS);
-        } catch (Exception e) {
-            log.error("redis set key error", e);
-        }
+        // 推荐结果与用户无关，只校验登录
+        userService.getLoginUser(request);
+        Page<User> userPage = userService.recommendUsers(pageNum, pageSize);
+        return ResultUtils.success(userPage);
+    }
+
+    /**
+     * 按游标获取推荐用户，翻页时传入上一页返回的 nextCursor
+     *
+     * @param pageRequest
+     * @param request
+     * @return
+     */
+    @GetMapping("/recommend/cursor")
+    public BaseResponse<CursorPage<User>> recommendUsersByCursor(PageRequest pageRequest, HttpServletRequest request) {
+        userService.getLoginUser(request);
+        CursorPage<User> userPage = userService.recommendUsersByCursor(pageRequest.getCursor(),
+                pageRequest.getPageSize(), pageRequest.isSearchCount());
         return ResultUtils.success(userPage);
     }
 
@@ -170,17 +194,53 @@ public class UserController {
      * 获取最匹配的用户
      *
      * @param num
+     * @param mode 匹配模式 0 - 精确，1 - 近似，不传时使用配置的默认模式
      * @param request
      * @return
      */
     @GetMapping("/match")
-    public BaseResponse<List<User>> matchUsers(long num, HttpServletRequest request) {
+    public BaseResponse<List<User>> matchUsers(long num, Integer mode, HttpServletRequest request) {
         // 能够匹配num个人数
-        if (num <= 0 || num > 20) {
+        if (num <= 0 || num > UserConstant.MATCH_MAX_NUM) {
             throw new BusinessException(ErrorCode.PARAMS_ERROR);
         }
         User loginUser = userService.getLoginUser(request);
-        return ResultUtils.success(userService.matchUsers(num, loginUser));
+        if (mode == null) {
+            return ResultUtils.success(userService.matchUsers(num, loginUser));
+        }
+        MatchModeEnum matchModeEnum = MatchModeEnum.getEnumByValue(mode);
+        if (matchModeEnum == null) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "匹配模式不存在");
+        }
+        return ResultUtils.success(userService.matchUsers(num, matchModeEnum, loginUser));
+    }
+
+    /**
+     * 近似匹配召回率等统计信息（仅管理员）
+     *
+     * @param request
+     * @return
+     */
+    @GetMapping("/match/lsh/stats")
+    public BaseResponse<MatchLshStatsVO> getMatchLshStats(HttpServletRequest request) {
+        if (!userService.isAdmin(request)) {
+            throw new BusinessException(ErrorCode.NO_AUTH);
+        }
+        return ResultUtils.success(matchLshManager.getStats());
+    }
+
+    /**
+     * 二级缓存（推荐用户等）的命中、淘汰统计（仅管理员）
+     *
+     * @param request
+     * @return
+     */
+    @GetMapping("/cache/stats")
+    public BaseResponse<CacheStatsVO> getCacheStats(HttpServletRequest request) {
+        if (!userService.isAdmin(request)) {
+            throw new BusinessException(ErrorCode.NO_AUTH);
+        }
+        return ResultUtils.success(twoLevelCacheManager.getStats());
     }
 
 }
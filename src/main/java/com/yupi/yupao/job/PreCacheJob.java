@@ -1,23 +1,34 @@
 package com.yupi.yupao.job;
 
-import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.yupi.yupao.config.CacheConfig;
+import com.yupi.yupao.config.MatchConfig;
+import com.yupi.yupao.constant.UserConstant;
+import com.yupi.yupao.manager.MatchCacheManager;
+import com.yupi.yupao.manager.TwoLevelCacheManager;
 import com.yupi.yupao.mapper.UserMapper;
-import com.yupi.yupao.model.domain.User;
 import com.yupi.yupao.service.UserService;
+import com.yupi.yupao.utils.TopKCollector;
 import lombok.extern.slf4j.Slf4j;
 import org.redisson.api.RLock;
 import org.redisson.api.RedissonClient;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.support.CronExpression;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Resource;
+import java.time.ZonedDateTime;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * 缓存预热任务
@@ -33,44 +44,129 @@ public class PreCacheJob {
     private UserService userService;
 
     @Resource
-    private RedisTemplate<String, Object> redisTemplate;
+    private StringRedisTemplate stringRedisTemplate;
 
     @Resource
     private RedissonClient redissonClient;
 
-    // 重点用户
-    private List<Long> mainUserList = Arrays.asList(1L);
+    @Resource
+    private MatchCacheManager matchCacheManager;
+
+    @Resource
+    private MatchConfig matchConfig;
+
+    @Resource
+    private TwoLevelCacheManager twoLevelCacheManager;
 
-    // 每天执行，预热推荐用户
-    @Scheduled(cron = "0 31 0 * * *")
+    @Resource
+    private CacheConfig cacheConfig;
+
+    /**
+     * 预热推荐用户的时间，缓存的硬过期时间按下一次执行时间计算
+     */
+    private static final String WARM_UP_CRON = "0 31 0 * * *";
+
+    private static final String WARM_UP_LOCK_KEY = "yupao:precachejob:docache:lock";
+
+    // 每天执行，预热推荐用户（所有用户共享一份推荐 id 列表，只需写入一个 key）
+    @Scheduled(cron = WARM_UP_CRON)
     public void doCacheRecommendUser() {
-        RLock lock = redissonClient.getLock("yupao:precachejob:docache:lock");
+        RLock lock = redissonClient.getLock(WARM_UP_LOCK_KEY);
         try {
             // 只有一个线程能获取到锁
             if (lock.tryLock(0, -1, TimeUnit.MILLISECONDS)) {
-                System.out.println("getLock: " + Thread.currentThread().getId());
-                for (Long userId : mainUserList) {
-                    QueryWrapper<User> queryWrapper = new QueryWrapper<>();
-                    Page<User> userPage = userService.page(new Page<>(1, 20), queryWrapper);
-                    String redisKey = String.format("yupao:user:recommend:%s", userId);
-                    ValueOperations<String, Object> valueOperations = redisTemplate.opsForValue();
-                    // 写缓存
-                    try {
-                        valueOperations.set(redisKey, userPage, 30000, TimeUnit.MILLISECONDS);
-                    } catch (Exception e) {
-                        log.error("redis set key error", e);
-                    }
-                }
+                warmUpRecommendUsers();
             }
         } catch (InterruptedException e) {
             log.error("doCacheRecommendUser error", e);
+        } catch (Exception e) {
+            // 预热失败时读请求按未命中加载，不影响使用
+            log.error("warm up recommend users error", e);
         } finally {
             // 只能释放自己的锁
             if (lock.isHeldByCurrentThread()) {
-                System.out.println("unLock: " + Thread.currentThread().getId());
                 lock.unlock();
             }
         }
     }
 
+    private void warmUpRecommendUsers() {
+        long startTime = System.currentTimeMillis();
+        // 缓存保留到下一次预热之后，中间由读请求按软过期在后台刷新
+        ZonedDateTime nextRunTime = CronExpression.parse(WARM_UP_CRON).next(ZonedDateTime.now());
+        long hardExpireTime = nextRunTime.toInstant().toEpochMilli() + cacheConfig.getWarmUpExpireSlackMillis();
+        twoLevelCacheManager.put(UserConstant.USER_RECOMMEND_KEY, userService.loadRecommendUsers(),
+                cacheConfig.getRecommendExpireMillis(), hardExpireTime - System.currentTimeMillis());
+        log.info("warm up recommend users finished, cost: {} ms", System.currentTimeMillis() - startTime);
+    }
+
+    // 每天执行，预计算活跃用户的匹配结果
+    @Scheduled(cron = "0 0 4 * * *")
+    public void doPrecomputeMatchUsers() {
+        RLock lock = redissonClient.getLock("yupao:precachejob:domatch:lock");
+        try {
+            // 只有一个线程能获取到锁
+            if (lock.tryLock(0, -1, TimeUnit.MILLISECONDS)) {
+                precomputeMatchUsers();
+            }
+        } catch (InterruptedException e) {
+            log.error("doPrecomputeMatchUsers error", e);
+        } finally {
+            // 只能释放自己的锁
+            if (lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 分批并行计算活跃用户的匹配结果，每批一次 pipeline 写入，全部写完后再切换生效的批次
+     */
+    private void precomputeMatchUsers() {
+        // 先取本地索引已同步的版本再计算，之后（含计算期间）的标签变更在读取时校验
+        long[] version = matchCacheManager.getVersion();
+        long[] indexVersion = version == null ? null : matchCacheManager.getIndexVersion(version);
+        if (indexVersion == null) {
+            return;
+        }
+        long runId = System.currentTimeMillis();
+        long activeAfter = runId - TimeUnit.DAYS.toMillis(matchConfig.getPrecomputeActiveDays());
+        stringRedisTemplate.opsForZSet().removeRangeByScore(UserConstant.USER_ACTIVE_KEY, 0, activeAfter);
+        Set<String> activeUserIds = stringRedisTemplate.opsForZSet().rangeByScore(UserConstant.USER_ACTIVE_KEY, activeAfter, Double.MAX_VALUE);
+        if (activeUserIds == null || activeUserIds.isEmpty()) {
+            return;
+        }
+        List<Long> userIdList = activeUserIds.stream().map(Long::parseLong).collect(Collectors.toList());
+        int batchSize = matchConfig.getPrecomputeBatchSize();
+        ExecutorService executorService = Executors.newFixedThreadPool(matchConfig.getPrecomputeParallelism());
+        List<CompletableFuture<Void>> futureList = new ArrayList<>();
+        for (int from = 0; from < userIdList.size(); from += batchSize) {
+            List<Long> batchUserIdList = userIdList.subList(from, Math.min(from + batchSize, userIdList.size()));
+            futureList.add(CompletableFuture.runAsync(() -> {
+                Map<Long, TopKCollector> userTopKMap = new HashMap<>();
+                for (Long userId : batchUserIdList) {
+                    TopKCollector topKCollector = userService.matchTopK(userId);
+                    // 索引未就绪或没有可匹配的用户时不写入，读取时实时计算
+                    if (topKCollector != null && topKCollector.size() > 0) {
+                        userTopKMap.put(userId, topKCollector);
+                    }
+                }
+                if (!userTopKMap.isEmpty()) {
+                    matchCacheManager.savePrecomputed(runId, userTopKMap);
+                }
+            }, executorService));
+        }
+        try {
+            CompletableFuture.allOf(futureList.toArray(new CompletableFuture[]{})).join();
+            matchCacheManager.publishPrecomputed(runId, indexVersion);
+            log.info("precompute match users finished, users: {}, cost: {} ms",
+                    userIdList.size(), System.currentTimeMillis() - runId);
+        } catch (CompletionException e) {
+            // 有批次失败时不切换，继续使用上一次的结果
+            log.error("precompute match users error", e);
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
 }
@@ -0,0 +1,36 @@
+package com.yupi.yupao.job;
+
+import com.yupi.yupao.manager.TagFacetManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+
+/**
+ * 标签统计校对任务（计数在各节点内存中，每个节点都要执行）
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+@Component
+@Slf4j
+public class TagFacetJob {
+
+    @Resource
+    private TagFacetManager tagFacetManager;
+
+    // 每天执行，校对标签统计
+    @Scheduled(cron = "0 0 5 * * *")
+    public void doReconcile() {
+        if (!tagFacetManager.isEnabled()) {
+            return;
+        }
+        try {
+            tagFacetManager.reconcile();
+        } catch (Exception e) {
+            // 校对失败时继续使用增量结果
+            log.error("reconcile tag facet error", e);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.yupi.yupao.job;
+
+import com.yupi.yupao.manager.MatchCacheManager;
+import com.yupi.yupao.manager.TagHierarchyManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+
+/**
+ * 标签层级增量刷新任务
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+@Component
+@Slf4j
+public class TagHierarchyJob {
+
+    @Resource
+    private TagHierarchyManager tagHierarchyManager;
+
+    @Resource
+    private MatchCacheManager matchCacheManager;
+
+    @Scheduled(initialDelayString = "${yupao.match.hierarchy-refresh-millis:60000}",
+            fixedDelayString = "${yupao.match.hierarchy-refresh-millis:60000}")
+    public void doRefresh() {
+        if (!tagHierarchyManager.isEnabled()) {
+            return;
+        }
+        try {
+            // 标签树变化后距离随之变化，旧的匹配缓存全部失效
+            if (tagHierarchyManager.refresh()) {
+                matchCacheManager.bumpEpoch();
+            }
+        } catch (Exception e) {
+            log.error("refresh tag hierarchy error", e);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.yupi.yupao.job;
+
+import com.yupi.yupao.config.MatchConfig;
+import com.yupi.yupao.config.TagConfig;
+import com.yupi.yupao.manager.TagRedisIndexManager;
+import com.yupi.yupao.manager.UserTagIndexManager;
+import com.yupi.yupao.mapper.UserMapper;
+import com.yupi.yupao.model.domain.User;
+import com.yupi.yupao.service.TagService;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis 标签索引校对任务
+ * 按 id 分批读取 MySQL 中的用户标签，整批覆盖写入 Redis，修复写入失败、宕机等原因造成的不一致
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+@Component
+@Slf4j
+public class TagRedisIndexRepairJob {
+
+    @Resource
+    private UserMapper userMapper;
+
+    @Resource
+    private TagService tagService;
+
+    @Resource
+    private TagRedisIndexManager tagRedisIndexManager;
+
+    @Resource
+    private RedissonClient redissonClient;
+
+    @Resource
+    private TagConfig tagConfig;
+
+    @Resource
+    private MatchConfig matchConfig;
+
+    /**
+     * 启动后索引还没有建立过时执行一次全量校对（异步执行，不阻塞启动）
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void doRepairIfNotReady() {
+        if (!tagRedisIndexManager.isEnabled() || tagRedisIndexManager.isReady()) {
+            return;
+        }
+        Thread thread = new Thread(this::doRepair, "tag-redis-index-repair");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // 每天执行，校对 Redis 标签索引
+    @Scheduled(cron = "0 30 3 * * *")
+    public void doRepair() {
+        if (!tagRedisIndexManager.isEnabled()) {
+            return;
+        }
+        RLock lock = redissonClient.getLock("yupao:tagindexjob:repair:lock");
+        try {
+            // 只有一个节点执行
+            if (lock.tryLock(0, -1, TimeUnit.MILLISECONDS)) {
+                repair();
+            }
+        } catch (InterruptedException e) {
+            log.error("doRepair error", e);
+        } catch (Exception e) {
+            log.error("repair tag redis index error", e);
+        } finally {
+            // 只能释放自己的锁
+            if (lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void repair() {
+        long start = System.currentTimeMillis();
+        // 校对期间更新过的用户已经由更新接口写入，跳过它们，避免用读到的旧数据覆盖
+        long skipAfter = start - matchConfig.getSyncSlackSeconds() * 1000L;
+        int batchSize = tagConfig.getRedisIndexRepairBatchSize();
+        long lastId = 0;
+        long total = 0;
+        while (true) {
+            List<User> userList = userMapper.listUserTagsAfterId(lastId, batchSize);
+            if (userList.isEmpty()) {
+                break;
+            }
+            Map<Long, List<String>> userTagNameMap = new HashMap<>();
+            Set<String> tagNameSet = new HashSet<>();
+            for (User user : userList) {
+                if (user.getUpdateTime() != null && user.getUpdateTime().getTime() >= skipAfter) {
+                    continue;
+                }
+                // 已删除的用户按无标签处理，从索引中移除
+                List<String> tagNameList = Integer.valueOf(1).equals(user.getIsDelete())
+                        ? new ArrayList<>() : UserTagIndexManager.parseTags(user.getTags());
+                userTagNameMap.put(user.getId(), tagNameList);
+                tagNameSet.addAll(tagNameList);
+            }
+            Map<String, Long> tagIdMap = tagService.getOrCreateTagIds(tagNameSet, null);
+            Map<Long, Set<Long>> userTagIdMap = new HashMap<>();
+            for (Map.Entry<Long, List<String>> entry : userTagNameMap.entrySet()) {
+                Set<Long> tagIdSet = new HashSet<>();
+                for (String tagName : entry.getValue()) {
+                    Long tagId = tagIdMap.get(tagName);
+                    if (tagId != null) {
+                        tagIdSet.add(tagId);
+                    }
+                }
+                userTagIdMap.put(entry.getKey(), tagIdSet);
+            }
+            // 读取之后才提交的更新由更新接口写入，脚本按用户的更新时间跳过它们，不用读到的旧数据覆盖
+            tagRedisIndexManager.repairUserTags(userTagIdMap, skipAfter);
+            lastId = userList.get(userList.size() - 1).getId();
+            total += userList.size();
+        }
+        tagRedisIndexManager.markReady();
+        log.info("tag redis index repaired, users: {}, cost: {} ms", total, System.currentTimeMillis() - start);
+    }
+}
@@ -0,0 +1,32 @@
+package com.yupi.yupao.job;
+
+import com.yupi.yupao.manager.TagSuggestManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+
+/**
+ * 标签补全字典树重建任务
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+@Component
+@Slf4j
+public class TagSuggestJob {
+
+    @Resource
+    private TagSuggestManager tagSuggestManager;
+
+    @Scheduled(initialDelay = 5000, fixedDelayString = "${yupao.tag.suggest-refresh-millis:300000}")
+    public void doRebuild() {
+        try {
+            tagSuggestManager.rebuild();
+        } catch (Exception e) {
+            // 重建失败时继续使用旧的字典树
+            log.error("rebuild tag suggest trie error", e);
+        }
+    }
+}
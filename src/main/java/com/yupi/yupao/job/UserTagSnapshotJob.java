@@ -0,0 +1,33 @@
+package com.yupi.yupao.job;
+
+import com.yupi.yupao.manager.UserTagIndexManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+
+/**
+ * 用户标签索引同步任务：按 updateTime 追上其他节点的修改，再写入本地快照
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+@Component
+@Slf4j
+public class UserTagSnapshotJob {
+
+    @Resource
+    private UserTagIndexManager userTagIndexManager;
+
+    @Scheduled(initialDelayString = "${yupao.match.snapshot-interval-millis:600000}",
+            fixedDelayString = "${yupao.match.snapshot-interval-millis:600000}")
+    public void doSyncAndSnapshot() {
+        // 索引还在构建中，等下一次
+        if (!userTagIndexManager.isReady()) {
+            return;
+        }
+        userTagIndexManager.catchUp();
+        userTagIndexManager.writeSnapshot();
+    }
+}
@@ -0,0 +1,430 @@
+package com.yupi.yupao.manager;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.yupi.yupao.config.MatchConfig;
+import com.yupi.yupao.constant.UserConstant;
+import com.yupi.yupao.mapper.UserMapper;
+import com.yupi.yupao.model.domain.User;
+import com.yupi.yupao.model.dto.MatchCacheEntry;
+import com.yupi.yupao.model.enums.MatchModeEnum;
+import com.yupi.yupao.utils.TopKCollector;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.DefaultTuple;
+import org.springframework.data.redis.connection.RedisZSetCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 用户匹配结果缓存（本地 Caffeine + Redis 二级缓存）
+ * 缓存每个用户距离最小的 {@link UserConstant#MATCH_MAX_NUM} 个用户，读取时按以下规则校验：
+ * 1. 全局标签版本（epoch）变化则失效，批量导入用户后递增
+ * 2. 每次修改标签都会递增变更序号（seq）并记录到变更日志，缓存之后变更过标签的用户中，
+ * 有自己、有已在结果中的用户、或新标签（从数据库读取，本地索引可能还没追上其他节点的修改）足以挤进结果的用户，则失效；否则继续使用
+ * 精确匹配在缓存未命中时，会先读取每日预计算的有序集合（score 为距离），同样按上述规则校验
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+@Component
+@Slf4j
+public class MatchCacheManager {
+
+    private static final String EPOCH_KEY = "yupao:user:match:epoch";
+
+    private static final String SEQ_KEY = "yupao:user:match:seq";
+
+    /**
+     * 标签变更日志，member 为用户 id，score 为最近一次变更的序号
+     */
+    private static final String CHANGES_KEY = "yupao:user:match:changes";
+
+    /**
+     * 变更日志被截断的位置，早于该序号的缓存无法校验
+     */
+    private static final String CHANGES_FLOOR_KEY = "yupao:user:match:changes:floor";
+
+    private static final String ENTRY_KEY = "yupao:user:match:%s:%s";
+
+    /**
+     * 预计算结果，按批次 id 区分，批次全部写完后才切换 current，读取方不会看到写了一半的批次
+     */
+    private static final String PRECOMPUTED_KEY = "yupao:user:match:precomputed:%s:%s";
+
+    /**
+     * 当前生效的预计算批次，值为 "批次 id:epoch:seq"
+     */
+    private static final String PRECOMPUTED_CURRENT_KEY = "yupao:user:match:precomputed:current";
+
+    /**
+     * 递增序号、记录变更并截断日志
+     */
+    private static final DefaultRedisScript<Long> RECORD_CHANGE_SCRIPT = new DefaultRedisScript<>(
+            "local seq = redis.call('INCR', KEYS[1])\n" +
+                    "redis.call('ZADD', KEYS[2], seq, ARGV[1])\n" +
+                    "local size = redis.call('ZCARD', KEYS[2])\n" +
+                    "local overflow = size - tonumber(ARGV[2])\n" +
+                    "if overflow > 0 then\n" +
+                    "  local removed = redis.call('ZRANGE', KEYS[2], overflow - 1, overflow - 1, 'WITHSCORES')\n" +
+                    "  redis.call('SET', KEYS[3], removed[2])\n" +
+                    "  redis.call('ZREMRANGEBYRANK', KEYS[2], 0, overflow - 1)\n" +
+                    "end\n" +
+                    "return seq", Long.class);
+
+    @Resource
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private UserTagIndexManager userTagIndexManager;
+
+    @Resource
+    private UserMapper userMapper;
+
+    @Resource
+    private TagHierarchyManager tagHierarchyManager;
+
+    @Resource
+    private SingleFlightLoader singleFlightLoader;
+
+    @Resource
+    private MatchConfig matchConfig;
+
+    private Cache<String, MatchCacheEntry> localCache;
+
+    @PostConstruct
+    public void init() {
+        userTagIndexManager.setChangeVersionSupplier(this::getVersion);
+        long expireNanos = TimeUnit.SECONDS.toNanos(matchConfig.getCacheExpireSeconds());
+        // 校验通过后推进序号会覆盖写入，不能因此延长过期时间，否则经常读取的结果永远不会重新计算
+        localCache = Caffeine.newBuilder()
+                .maximumSize(matchConfig.getCacheLocalMaxSize())
+                .expireAfter(new Expiry<String, MatchCacheEntry>() {
+                    @Override
+                    public long expireAfterCreate(String key, MatchCacheEntry value, long currentTime) {
+                        return expireNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, MatchCacheEntry value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, MatchCacheEntry value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * 读取匹配结果缓存，不存在或已失效时重新计算并写入
+     *
+     * @param userId 当前用户
+     * @param mode   匹配模式
+     * @param tagIds 当前用户的标签 id
+     * @param loader 计算 Top-K（k 为 {@link UserConstant#MATCH_MAX_NUM}）
+     * @return 按距离由小到大的用户 id
+     */
+    public long[] getOrCompute(long userId, MatchModeEnum mode, int[] tagIds, Supplier<TopKCollector> loader) {
+        if (!matchConfig.isCacheEnabled()) {
+            return loader.get().getSortedIds();
+        }
+        long[] version = getVersion();
+        // Redis 不可用时无法校验缓存，直接计算
+        if (version == null) {
+            return loader.get().getSortedIds();
+        }
+        String key = String.format(ENTRY_KEY, mode.getValue(), userId);
+        MatchCacheEntry entry = localCache.getIfPresent(key);
+        if (entry == null) {
+            entry = getRemote(key);
+        }
+        if (entry == null && MatchModeEnum.EXACT.equals(mode)) {
+            entry = getPrecomputed(userId);
+        }
+        if (entry != null && isValid(userId, tagIds, entry, version)) {
+            // 校验通过，推进序号，下次只需校验之后的变更
+            if (entry.getSeq() < version[1]) {
+                MatchCacheEntry advancedEntry = new MatchCacheEntry();
+                advancedEntry.setEpoch(entry.getEpoch());
+                advancedEntry.setSeq(version[1]);
+                advancedEntry.setUserIds(entry.getUserIds());
+                advancedEntry.setDistances(entry.getDistances());
+                entry = advancedEntry;
+            }
+            localCache.put(key, entry);
+            return entry.getUserIds();
+        }
+        // 先取索引版本再计算，索引之后的变更（含计算期间的）会在下次读取时校验；同一用户的并发请求只计算一次
+        long[] indexVersion = getIndexVersion(version);
+        TopKCollector topKCollector = singleFlightLoader.loadLocally(key, loader);
+        if (indexVersion == null) {
+            return topKCollector.getSortedIds();
+        }
+        entry = new MatchCacheEntry();
+        entry.setEpoch(indexVersion[0]);
+        entry.setSeq(indexVersion[1]);
+        entry.setUserIds(topKCollector.getSortedIds());
+        entry.setDistances(topKCollector.getSortedDistances());
+        // 先清除失效的旧值，重新计算的结果从头计算过期时间
+        localCache.invalidate(key);
+        localCache.put(key, entry);
+        try {
+            redisTemplate.opsForValue().set(key, entry, matchConfig.getCacheExpireSeconds(), TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.error("redis set match cache error", e);
+        }
+        return entry.getUserIds();
+    }
+
+    /**
+     * 用户标签变更（或用户被删除）时调用
+     * 直接清除该用户自己的缓存，其他用户的缓存在读取时根据变更日志校验
+     *
+     * @param userId
+     */
+    public void onUserTagsChanged(long userId) {
+        List<String> keyList = new ArrayList<>();
+        for (MatchModeEnum mode : MatchModeEnum.values()) {
+            keyList.add(String.format(ENTRY_KEY, mode.getValue(), userId));
+        }
+        localCache.invalidateAll(keyList);
+        try {
+            stringRedisTemplate.execute(RECORD_CHANGE_SCRIPT, Arrays.asList(SEQ_KEY, CHANGES_KEY, CHANGES_FLOOR_KEY),
+                    String.valueOf(userId), String.valueOf(matchConfig.getCacheChangeLogSize()));
+            redisTemplate.delete(keyList);
+        } catch (Exception e) {
+            log.error("redis record match cache change error", e);
+        }
+    }
+
+    /**
+     * 递增全局标签版本，使所有匹配缓存失效（批量导入用户后调用）
+     */
+    public void bumpEpoch() {
+        localCache.invalidateAll();
+        try {
+            stringRedisTemplate.opsForValue().increment(EPOCH_KEY);
+        } catch (Exception e) {
+            log.error("redis bump match cache epoch error", e);
+        }
+    }
+
+    /**
+     * 批量写入预计算结果（一次 pipeline），写完后需调用 {@link #publishPrecomputed} 生效
+     *
+     * @param runId       预计算批次 id
+     * @param userTopKMap 用户 id => 匹配结果
+     */
+    public void savePrecomputed(long runId, Map<Long, TopKCollector> userTopKMap) {
+        long expireSeconds = matchConfig.getPrecomputeExpireSeconds();
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Map.Entry<Long, TopKCollector> userTopK : userTopKMap.entrySet()) {
+                byte[] key = String.format(PRECOMPUTED_KEY, runId, userTopK.getKey()).getBytes(StandardCharsets.UTF_8);
+                long[] userIds = userTopK.getValue().getSortedIds();
+                int[] distances = userTopK.getValue().getSortedDistances();
+                Set<RedisZSetCommands.Tuple> tupleSet = new HashSet<>();
+                for (int i = 0; i < userIds.length; i++) {
+                    tupleSet.add(new DefaultTuple(String.valueOf(userIds[i]).getBytes(StandardCharsets.UTF_8), (double) distances[i]));
+                }
+                connection.zAdd(key, tupleSet);
+                connection.expire(key, expireSeconds);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 切换到新的预计算批次
+     *
+     * @param runId   预计算批次 id
+     * @param version 开始预计算前读取的版本，计算期间的标签变更在读取时校验
+     */
+    public void publishPrecomputed(long runId, long[] version) {
+        stringRedisTemplate.opsForValue().set(PRECOMPUTED_CURRENT_KEY, runId + ":" + version[0] + ":" + version[1],
+                matchConfig.getPrecomputeExpireSeconds(), TimeUnit.SECONDS);
+    }
+
+    /**
+     * 获取 [epoch, seq, floor]，Redis 异常时返回 null
+     *
+     * @return
+     */
+    public long[] getVersion() {
+        try {
+            List<String> valueList = stringRedisTemplate.opsForValue().multiGet(Arrays.asList(EPOCH_KEY, SEQ_KEY, CHANGES_FLOOR_KEY));
+            long[] version = new long[3];
+            for (int i = 0; i < version.length; i++) {
+                String value = valueList == null ? null : valueList.get(i);
+                version[i] = value == null ? 0 : Long.parseLong(value);
+            }
+            return version;
+        } catch (Exception e) {
+            log.error("redis get match cache version error", e);
+            return null;
+        }
+    }
+
+    /**
+     * 获取用本地索引计算的结果对应的版本 [epoch, seq]
+     * 其他节点的标签变更要等下次追增量才会进入本地索引，计算结果只包含索引已同步的变更，
+     * 按索引的序号记录，之后的变更在读取时从数据库校验
+     *
+     * @param version 当前版本
+     * @return 索引版本未知或全局标签版本已变化（批量导入后索引未追上）时返回 null，计算结果不能缓存
+     */
+    public long[] getIndexVersion(long[] version) {
+        long[] syncedVersion = userTagIndexManager.getSyncedVersion();
+        if (syncedVersion == null || syncedVersion[0] != version[0]) {
+            return null;
+        }
+        return new long[]{version[0], Math.min(syncedVersion[1], version[1])};
+    }
+
+    private MatchCacheEntry getRemote(String key) {
+        try {
+            return (MatchCacheEntry) redisTemplate.opsForValue().get(key);
+        } catch (Exception e) {
+            log.error("redis get match cache error", e);
+            return null;
+        }
+    }
+
+    private MatchCacheEntry getPrecomputed(long userId) {
+        try {
+            String current = stringRedisTemplate.opsForValue().get(PRECOMPUTED_CURRENT_KEY);
+            if (current == null) {
+                return null;
+            }
+            String[] parts = current.split(":");
+            Set<ZSetOperations.TypedTuple<String>> tupleSet = stringRedisTemplate.opsForZSet()
+                    .rangeWithScores(String.format(PRECOMPUTED_KEY, parts[0], userId), 0, -1);
+            if (tupleSet == null || tupleSet.isEmpty()) {
+                return null;
+            }
+            // 距离相同的按 id 排序，与实时计算的结果一致
+            List<long[]> idDistanceList = new ArrayList<>();
+            for (ZSetOperations.TypedTuple<String> tuple : tupleSet) {
+                idDistanceList.add(new long[]{Long.parseLong(tuple.getValue()), tuple.getScore().longValue()});
+            }
+            idDistanceList.sort(Comparator.<long[]>comparingLong(pair -> pair[1]).thenComparingLong(pair -> pair[0]));
+            long[] userIds = new long[idDistanceList.size()];
+            int[] distances = new int[idDistanceList.size()];
+            for (int i = 0; i < userIds.length; i++) {
+                userIds[i] = idDistanceList.get(i)[0];
+                distances[i] = (int) idDistanceList.get(i)[1];
+            }
+            MatchCacheEntry entry = new MatchCacheEntry();
+            entry.setEpoch(Long.parseLong(parts[1]));
+            entry.setSeq(Long.parseLong(parts[2]));
+            entry.setUserIds(userIds);
+            entry.setDistances(distances);
+            return entry;
+        } catch (Exception e) {
+            log.error("redis get precomputed match error", e);
+            return null;
+        }
+    }
+
+    private boolean isValid(long userId, int[] tagIds, MatchCacheEntry entry, long[] version) {
+        if (entry.getEpoch() != version[0]) {
+            return false;
+        }
+        if (entry.getSeq() >= version[1]) {
+            return true;
+        }
+        // 变更日志已截断，无法确认期间的变更
+        if (entry.getSeq() < version[2]) {
+            return false;
+        }
+        Set<String> changedUserIds;
+        try {
+            changedUserIds = stringRedisTemplate.opsForZSet().rangeByScore(CHANGES_KEY, entry.getSeq() + 1, version[1]);
+        } catch (Exception e) {
+            log.error("redis get match cache changes error", e);
+            return false;
+        }
+        if (changedUserIds == null) {
+            return false;
+        }
+        if (changedUserIds.isEmpty()) {
+            return true;
+        }
+        long[] userIds = entry.getUserIds();
+        int[] distances = entry.getDistances();
+        List<Long> changedUserIdList = new ArrayList<>();
+        for (String changedUserIdStr : changedUserIds) {
+            long changedUserId = Long.parseLong(changedUserIdStr);
+            if (changedUserId == userId) {
+                return false;
+            }
+            // 结果中的用户变更了标签，可能离开或改变排名
+            for (long id : userIds) {
+                if (id == changedUserId) {
+                    return false;
+                }
+            }
+            changedUserIdList.add(changedUserId);
+        }
+        Map<Long, int[]> changedTagIdMap = getCurrentTagIds(changedUserIdList);
+        // 读不到最新标签时不能确认，否则推进序号后再也不会校验这些变更
+        if (changedTagIdMap == null) {
+            return false;
+        }
+        // 结果未满时任何有标签的用户都可能进入
+        int kth = userIds.length < UserConstant.MATCH_MAX_NUM ? Integer.MAX_VALUE : distances[distances.length - 1];
+        // 新标签足以挤进结果（已删除的用户查不到，不会进入结果）
+        for (int[] changedTagIds : changedTagIdMap.values()) {
+            if (changedTagIds.length > 0 && tagHierarchyManager.distance(tagIds, changedTagIds, kth) <= kth) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 从数据库读取用户当前的标签（变更可能来自其他节点，本地索引要等下次追增量才会更新）
+     *
+     * @param userIdList
+     * @return 用户 id => 标签 id 数组，数据库异常时返回 null
+     */
+    private Map<Long, int[]> getCurrentTagIds(List<Long> userIdList) {
+        try {
+            QueryWrapper<User> queryWrapper = new QueryWrapper<>();
+            queryWrapper.select("id", "tags");
+            queryWrapper.in("id", userIdList);
+            Map<Long, int[]> userTagIdMap = new HashMap<>();
+            for (User user : userMapper.selectList(queryWrapper)) {
+                userTagIdMap.put(user.getId(), userTagIndexManager.encodeTags(user.getTags()));
+            }
+            return userTagIdMap;
+        } catch (Exception e) {
+            log.error("get changed user tags error", e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.yupi.yupao.manager;
+
+import com.yupi.yupao.config.MatchConfig;
+import com.yupi.yupao.model.vo.MatchLshStatsVO;
+import com.yupi.yupao.utils.MinHashLsh;
+import com.yupi.yupao.utils.TopKCollector;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 近似匹配（MinHash LSH）管理
+ * 随标签倒排索引一起维护 LSH 桶，并抽样对比精确匹配结果统计召回率，用于调整 band / row 参数
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+@Component
+@Slf4j
+public class MatchLshManager implements UserTagChangeListener {
+
+    @Resource
+    private MatchConfig matchConfig;
+
+    @Resource
+    private UserTagIndexManager userTagIndexManager;
+
+    private MinHashLsh minHashLsh;
+
+    private final LongAdder requestCount = new LongAdder();
+
+    private final LongAdder sampleCount = new LongAdder();
+
+    private final DoubleAdder recallSum = new DoubleAdder();
+
+    private final DoubleAdder candidateRatioSum = new DoubleAdder();
+
+    @PostConstruct
+    public void init() {
+        if (!matchConfig.isLshEnabled()) {
+            return;
+        }
+        // 固定种子，保证各节点、重启前后的签名一致
+        minHashLsh = new MinHashLsh(matchConfig.getLshBands(), matchConfig.getLshRows(), 20221023L);
+        userTagIndexManager.addListener(this);
+    }
+
+    @Override
+    public void onUserTagsChanged(long userId, int[] oldTagIds, int[] newTagIds) {
+        minHashLsh.put(userId, newTagIds);
+    }
+
+    /**
+     * 近似匹配是否可用
+     *
+     * @return
+     */
+    public boolean isEnabled() {
+        return minHashLsh != null;
+    }
+
+    /**
+     * 获取 LSH 候选用户
+     *
+     * @param tagIds
+     * @return
+     */
+    public Set<Long> getCandidateUserIds(int[] tagIds) {
+        requestCount.increment();
+        return minHashLsh.getCandidateUserIds(tagIds);
+    }
+
+    /**
+     * 本次请求是否需要抽样对比精确结果
+     *
+     * @return
+     */
+    public boolean shouldSample() {
+        return ThreadLocalRandom.current().nextDouble() < matchConfig.getLshRecallSampleRate();
+    }
+
+    /**
+     * 记录一次抽样的召回率
+     *
+     * @param approximate        近似匹配结果
+     * @param exact              精确匹配结果
+     * @param lshCandidateCount  LSH 候选数
+     * @param exactCandidateCount 倒排索引候选数
+     */
+    public void recordSample(TopKCollector approximate, TopKCollector exact, int lshCandidateCount, int exactCandidateCount) {
+        long[] exactIds = exact.getSortedIds();
+        if (exactIds.length == 0) {
+            return;
+        }
+        Set<Long> approximateIdSet = new HashSet<>();
+        for (long id : approximate.getSortedIds()) {
+            approximateIdSet.add(id);
+        }
+        int hit = 0;
+        for (long id : exactIds) {
+            if (approximateIdSet.contains(id)) {
+                hit++;
+            }
+        }
+        double recall = (double) hit / exactIds.length;
+        sampleCount.increment();
+        recallSum.add(recall);
+        candidateRatioSum.add(exactCandidateCount == 0 ? 1 : (double) lshCandidateCount / exactCandidateCount);
+        log.debug("lsh recall sample, recall: {}, lsh candidates: {}, exact candidates: {}",
+                recall, lshCandidateCount, exactCandidateCount);
+    }
+
+    /**
+     * 获取统计信息
+     *
+     * @return
+     */
+    public MatchLshStatsVO getStats() {
+        MatchLshStatsVO matchLshStatsVO = new MatchLshStatsVO();
+        matchLshStatsVO.setBands(matchConfig.getLshBands());
+        matchLshStatsVO.setRows(matchConfig.getLshRows());
+        matchLshStatsVO.setRequestCount(requestCount.sum());
+        long samples = sampleCount.sum();
+        matchLshStatsVO.setSampleCount(samples);
+        if (samples > 0) {
+            matchLshStatsVO.setAverageRecall(recallSum.sum() / samples);
+            matchLshStatsVO.setAverageCandidateRatio(candidateRatioSum.sum() / samples);
+        }
+        return matchLshStatsVO;
+    }
+}
@@ -0,0 +1,157 @@
+package com.yupi.yupao.manager;
+
+import com.yupi.yupao.utils.AlgorithmUtils;
+import com.yupi.yupao.utils.TagDistance;
+import com.yupi.yupao.utils.TopKCollector;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.LongFunction;
+
+/**
+ * 用户匹配并行打分引擎
+ * 候选用户按区间切分后在独立的 ForkJoinPool 中打分，每个分区维护自己的 Top-K 再合并
+ * 单个请求最多切分为 maxTasksPerRequest 个分区，避免一次匹配占满线程池
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+@Slf4j
+public class MatchScoringManager {
+
+    private final ForkJoinPool forkJoinPool;
+
+    /**
+     * 单个请求最多的分区数
+     */
+    private final int maxTasksPerRequest;
+
+    /**
+     * 每个分区最少的候选数，候选太少时直接在请求线程中打分
+     */
+    private final int minPartitionSize;
+
+    public MatchScoringManager(int parallelism, int maxTasksPerRequest, int minPartitionSize) {
+        this.forkJoinPool = new ForkJoinPool(Math.max(1, parallelism), pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("match-scoring-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+        this.maxTasksPerRequest = Math.max(1, maxTasksPerRequest);
+        this.minPartitionSize = Math.max(1, minPartitionSize);
+    }
+
+    /**
+     * 计算与给定标签距离最小的 k 个候选用户
+     *
+     * @param tagIds       当前用户的标签 id
+     * @param candidateIds 候选用户 id
+     * @param tagLookup    候选用户 id => 标签 id，返回 null 表示用户已不存在
+     * @param k
+     * @return
+     */
+    public TopKCollector score(int[] tagIds, long[] candidateIds, LongFunction<int[]> tagLookup, int k) {
+        return score(tagIds, candidateIds, tagLookup, AlgorithmUtils::minDistance, k);
+    }
+
+    /**
+     * 使用指定的距离函数计算与给定标签距离最小的 k 个候选用户
+     *
+     * @param tagIds       当前用户的标签 id
+     * @param candidateIds 候选用户 id
+     * @param tagLookup    候选用户 id => 标签 id，返回 null 表示用户已不存在
+     * @param tagDistance  距离函数
+     * @param k
+     * @return
+     */
+    public TopKCollector score(int[] tagIds, long[] candidateIds, LongFunction<int[]> tagLookup, TagDistance tagDistance, int k) {
+        int partitions = Math.min(maxTasksPerRequest, (candidateIds.length + minPartitionSize - 1) / minPartitionSize);
+        if (partitions <= 1) {
+            return scoreRange(tagIds, candidateIds, tagLookup, tagDistance, k, 0, candidateIds.length);
+        }
+        try {
+            return forkJoinPool.invoke(new ScoreTask(tagIds, candidateIds, tagLookup, tagDistance, k, 0, partitions, partitions));
+        } catch (RejectedExecutionException e) {
+            // 线程池已关闭（应用停止中），退化为当前线程打分
+            log.warn("match scoring pool rejected, fallback to caller thread");
+            return scoreRange(tagIds, candidateIds, tagLookup, tagDistance, k, 0, candidateIds.length);
+        }
+    }
+
+    public void shutdown() {
+        forkJoinPool.shutdown();
+    }
+
+    private static TopKCollector scoreRange(int[] tagIds, long[] candidateIds, LongFunction<int[]> tagLookup,
+                                            TagDistance tagDistance, int k, int from, int to) {
+        TopKCollector topKCollector = new TopKCollector(k);
+        for (int i = from; i < to; i++) {
+            long candidateId = candidateIds[i];
+            int[] candidateTagIds = tagLookup.apply(candidateId);
+            // 打分期间被删除或清空标签的用户
+            if (candidateTagIds == null) {
+                continue;
+            }
+            // 以当前第 k 名的距离为阈值，超过阈值的候选提前终止计算
+            int distance = tagDistance.distance(tagIds, candidateTagIds, topKCollector.threshold());
+            topKCollector.offer(candidateId, distance);
+        }
+        return topKCollector;
+    }
+
+    /**
+     * 按分区二分切分的打分任务，只剩一个分区时直接计算
+     */
+    private static class ScoreTask extends RecursiveTask<TopKCollector> {
+
+        private final int[] tagIds;
+
+        private final long[] candidateIds;
+
+        private final LongFunction<int[]> tagLookup;
+
+        private final TagDistance tagDistance;
+
+        private final int k;
+
+        /**
+         * 负责的分区下标 [fromPartition, toPartition)
+         */
+        private final int fromPartition;
+
+        private final int toPartition;
+
+        private final int partitions;
+
+        ScoreTask(int[] tagIds, long[] candidateIds, LongFunction<int[]> tagLookup, TagDistance tagDistance,
+                  int k, int fromPartition, int toPartition, int partitions) {
+            this.tagIds = tagIds;
+            this.candidateIds = candidateIds;
+            this.tagLookup = tagLookup;
+            this.tagDistance = tagDistance;
+            this.k = k;
+            this.fromPartition = fromPartition;
+            this.toPartition = toPartition;
+            this.partitions = partitions;
+        }
+
+        @Override
+        protected TopKCollector compute() {
+            if (toPartition - fromPartition == 1) {
+                int from = (int) ((long) candidateIds.length * fromPartition / partitions);
+                int to = (int) ((long) candidateIds.length * toPartition / partitions);
+                return scoreRange(tagIds, candidateIds, tagLookup, tagDistance, k, from, to);
+            }
+            int mid = (fromPartition + toPartition) >>> 1;
+            ScoreTask left = new ScoreTask(tagIds, candidateIds, tagLookup, tagDistance, k, fromPartition, mid, partitions);
+            ScoreTask right = new ScoreTask(tagIds, candidateIds, tagLookup, tagDistance, k, mid, toPartition, partitions);
+            left.fork();
+            TopKCollector result = right.compute();
+            result.merge(left.join());
+            return result;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.yupi.yupao.manager;
+
+import com.yupi.yupao.config.CacheConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 缓存未命中时合并重复加载（single-flight）
+ * 1. 本节点内同一个 key 同时只有一个线程加载，其他线程等待同一个 future
+ * 2. 多个节点之间用 Redisson 短租约锁，只有拿到锁的节点重建，其他节点等锁释放后重新读缓存
+ * 锁等待超时或 Redis 异常时直接加载，宁可多查一次也不让请求一直阻塞
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+@Component
+@Slf4j
+public class SingleFlightLoader {
+
+    private static final String LOCK_KEY_PREFIX = "yupao:singleflight:lock:";
+
+    /**
+     * key => 正在进行的加载
+     */
+    private final Map<String, CompletableFuture<Object>> inFlightMap = new ConcurrentHashMap<>();
+
+    private final LongAdder loadCount = new LongAdder();
+
+    private final LongAdder localCoalescedCount = new LongAdder();
+
+    private final LongAdder remoteCoalescedCount = new LongAdder();
+
+    @Resource
+    private RedissonClient redissonClient;
+
+    @Resource
+    private CacheConfig cacheConfig;
+
+    /**
+     * 多节点合并加载：本节点内合并，节点之间加锁，拿到锁后先重新读缓存
+     *
+     * @param key         缓存 key
+     * @param cacheReader 读取缓存，返回 null 表示未命中
+     * @param loader      加载并写入缓存
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T load(String key, Supplier<T> cacheReader, Supplier<T> loader) {
+        return (T) coalesce(key, () -> loadWithLock(key, cacheReader, loader));
+    }
+
+    /**
+     * 只在本节点内合并加载（结果无法在节点之间共享时使用，如需要逐个校验的匹配结果）
+     *
+     * @param key
+     * @param loader
+     * @return 同时等待的线程拿到同一个对象，调用方不能修改
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T loadLocally(String key, Supplier<T> loader) {
+        return (T) coalesce(key, () -> {
+            loadCount.increment();
+            return loader.get();
+        });
+    }
+
+    public long getLoadCount() {
+        return loadCount.sum();
+    }
+
+    public long getLocalCoalescedCount() {
+        return localCoalescedCount.sum();
+    }
+
+    public long getRemoteCoalescedCount() {
+        return remoteCoalescedCount.sum();
+    }
+
+    /**
+     * 同一个 key 已有线程在加载时等待其结果，否则由当前线程加载
+     */
+    private Object coalesce(String key, Supplier<?> loader) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = inFlightMap.putIfAbsent(key, future);
+        if (inFlight != null) {
+            localCoalescedCount.increment();
+            try {
+                return inFlight.join();
+            } catch (CompletionException e) {
+                // 加载方的异常原样抛给等待方
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+        try {
+            Object value = loader.get();
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightMap.remove(key, future);
+        }
+    }
+
+    private <T> T loadWithLock(String key, Supplier<T> cacheReader, Supplier<T> loader) {
+        RLock lock = redissonClient.getLock(LOCK_KEY_PREFIX + key);
+        boolean locked = false;
+        try {
+            try {
+                // 租约很短，持有锁的节点挂掉也只会阻塞其他节点一小段时间
+                locked = lock.tryLock(cacheConfig.getSingleFlightLockWaitMillis(),
+                        cacheConfig.getSingleFlightLockLeaseMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("single flight lock error, key: {}", key, e);
+            }
+            // 拿到锁或等待超时，都先看其他节点是否已经写好缓存
+            T value = cacheReader.get();
+            if (value != null) {
+                remoteCoalescedCount.increment();
+                return value;
+            }
+            loadCount.increment();
+            return loader.get();
+        } finally {
+            if (locked) {
+                try {
+                    // 加载超过租约时锁已过期，不能释放别人的锁
+                    if (lock.isHeldByCurrentThread()) {
+                        lock.unlock();
+                    }
+                } catch (Exception e) {
+                    log.error("single flight unlock error, key: {}", key, e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.yupi.yupao.manager;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.yupi.yupao.config.TagConfig;
+import com.yupi.yupao.utils.TagDictionary;
+import com.yupi.yupao.utils.TagExpression;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 标签位图索引（标签 id => 用户 id 的 RoaringBitmap）
+ * 随标签倒排索引一起维护，布尔表达式直接用位图的交、并、差求值，结果按用户 id 升序分页
+ * 位图只支持 int，用户 id 超出 int 范围时索引不可用，搜索回退到全表扫描
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+@Component
+@Slf4j
+public class TagBitmapIndexManager implements UserTagChangeListener {
+
+    @Resource
+    private TagConfig tagConfig;
+
+    @Resource
+    private UserTagIndexManager userTagIndexManager;
+
+    /**
+     * 标签 id => 拥有该标签的用户，读写都在 lock 内
+     */
+    private final Map<Integer, RoaringBitmap> tagBitmapMap = new HashMap<>();
+
+    /**
+     * 有标签的全部用户（NOT 的补集范围）
+     */
+    private final RoaringBitmap allUsers = new RoaringBitmap();
+
+    /**
+     * 位图不是线程安全的，查询期间持有读锁，增量更新持有写锁
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean enabled = false;
+
+    private volatile boolean overflow = false;
+
+    @PostConstruct
+    public void init() {
+        if (!tagConfig.isBitmapEnabled()) {
+            return;
+        }
+        userTagIndexManager.addListener(this);
+        enabled = true;
+    }
+
+    @Override
+    public void onUserTagsChanged(long userId, int[] oldTagIds, int[] newTagIds) {
+        if (userId < 0 || userId > Integer.MAX_VALUE) {
+            if (!overflow) {
+                log.error("user id out of bitmap range, tag bitmap index disabled, userId: {}", userId);
+                overflow = true;
+            }
+            return;
+        }
+        int id = (int) userId;
+        lock.writeLock().lock();
+        try {
+            if (oldTagIds != null) {
+                for (int oldTagId : oldTagIds) {
+                    RoaringBitmap bitmap = tagBitmapMap.get(oldTagId);
+                    if (bitmap != null) {
+                        bitmap.remove(id);
+                        if (bitmap.isEmpty()) {
+                            tagBitmapMap.remove(oldTagId);
+                        }
+                    }
+                }
+            }
+            for (int newTagId : newTagIds) {
+                tagBitmapMap.computeIfAbsent(newTagId, key -> new RoaringBitmap()).add(id);
+            }
+            if (newTagIds.length > 0) {
+                allUsers.add(id);
+            } else {
+                allUsers.remove(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 位图索引是否可用（倒排索引构建完成前需要回退到全表扫描）
+     *
+     * @return
+     */
+    public boolean isReady() {
+        return enabled && !overflow && userTagIndexManager.isReady();
+    }
+
+    /**
+     * 按表达式分页查询用户 id
+     *
+     * @param expression
+     * @param pageNum    从 1 开始
+     * @param pageSize
+     * @return 当前页的用户 id（升序）和总数
+     */
+    public Page<Long> searchUserIds(TagExpression expression, long pageNum, long pageSize) {
+        Page<Long> page = new Page<>(pageNum, pageSize);
+        TagDictionary tagDictionary = userTagIndexManager.getTagDictionary();
+        List<Long> userIdList = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            RoaringBitmap result = expression.evaluate(tagName -> tagBitmapMap.get(tagDictionary.getId(tagName)), allUsers);
+            // 结果可能直接引用索引中的位图，取数据必须在锁内完成
+            long total = result.getLongCardinality();
+            long offset = (pageNum - 1) * pageSize;
+            page.setTotal(total);
+            if (offset < total) {
+                PeekableIntIterator iterator = result.getIntIterator();
+                // select 按排名直接定位到第 offset 个用户，不用逐个跳过
+                iterator.advanceIfNeeded(result.select((int) offset));
+                while (iterator.hasNext() && userIdList.size() < pageSize) {
+                    userIdList.add(Integer.toUnsignedLong(iterator.next()));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        page.setRecords(userIdList);
+        return page;
+    }
+}
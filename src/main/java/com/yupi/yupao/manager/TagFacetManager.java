@@ -0,0 +1,169 @@
+package com.yupi.yupao.manager;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.yupi.yupao.config.TagConfig;
+import com.yupi.yupao.mapper.UserMapper;
+import com.yupi.yupao.model.domain.User;
+import com.yupi.yupao.model.vo.TagFacetVO;
+import com.yupi.yupao.utils.TagDictionary;
+import com.yupi.yupao.utils.TagFacetCounter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 标签统计管理
+ * 随标签倒排索引增量维护每个标签的用户数和标签对的共现数，查询时不扫描用户表
+ * 定期按 id 顺序流式扫描 MySQL 重新计数，替换可能出现偏差的增量结果
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+@Component
+@Slf4j
+public class TagFacetManager implements UserTagChangeListener {
+
+    @Resource
+    private UserMapper userMapper;
+
+    @Resource
+    private UserTagIndexManager userTagIndexManager;
+
+    @Resource
+    private TagConfig tagConfig;
+
+    /**
+     * 增量计数和校对都在锁内修改
+     */
+    private final Object lock = new Object();
+
+    private volatile TagFacetCounter tagFacetCounter = new TagFacetCounter();
+
+    /**
+     * 校对中重新计数的结果，未在校对时为 null
+     */
+    private TagFacetCounter reconcilingCounter;
+
+    /**
+     * 校对扫描计入的每个用户的标签，校对期间变更过的用户需要按此减去扫描结果
+     */
+    private Map<Long, int[]> reconcileScannedTagMap;
+
+    /**
+     * 校对期间变更过标签的用户，扫描可能读到变更前或变更后的数据（其他节点的变更由追增量晚到），
+     * 不能按变更前后的差值修正，替换前改为按索引中的当前标签重新计入
+     */
+    private Set<Long> reconcileChangedUserIds;
+
+    private volatile long reconcileTime = 0;
+
+    @PostConstruct
+    public void init() {
+        if (tagConfig.isFacetEnabled()) {
+            userTagIndexManager.addListener(this);
+        }
+    }
+
+    public boolean isEnabled() {
+        return tagConfig.isFacetEnabled();
+    }
+
+    @Override
+    public void onUserTagsChanged(long userId, int[] oldTagIds, int[] newTagIds) {
+        synchronized (lock) {
+            tagFacetCounter.add(oldTagIds, -1);
+            tagFacetCounter.add(newTagIds, 1);
+            if (reconcilingCounter != null) {
+                reconcileChangedUserIds.add(userId);
+            }
+        }
+    }
+
+    /**
+     * 获取标签统计
+     *
+     * @param size 标签、标签对各返回的数量
+     * @return
+     */
+    public TagFacetVO getTagFacet(int size) {
+        TagFacetCounter counter = tagFacetCounter;
+        TagDictionary tagDictionary = userTagIndexManager.getTagDictionary();
+        List<TagFacetVO.TagCount> tagCountList = new ArrayList<>();
+        for (int[] tagCount : counter.topTags(size)) {
+            TagFacetVO.TagCount tagCountVO = new TagFacetVO.TagCount();
+            tagCountVO.setTagName(tagDictionary.getTag(tagCount[0]));
+            tagCountVO.setUserCount(tagCount[1]);
+            tagCountList.add(tagCountVO);
+        }
+        List<TagFacetVO.TagPairCount> tagPairCountList = new ArrayList<>();
+        for (int[] pairCount : counter.topPairs(size)) {
+            TagFacetVO.TagPairCount tagPairCountVO = new TagFacetVO.TagPairCount();
+            tagPairCountVO.setTagName1(tagDictionary.getTag(pairCount[0]));
+            tagPairCountVO.setTagName2(tagDictionary.getTag(pairCount[1]));
+            tagPairCountVO.setUserCount(pairCount[2]);
+            tagPairCountList.add(tagPairCountVO);
+        }
+        TagFacetVO tagFacetVO = new TagFacetVO();
+        tagFacetVO.setTagCountList(tagCountList);
+        tagFacetVO.setTagPairCountList(tagPairCountList);
+        tagFacetVO.setReconcileTime(reconcileTime);
+        return tagFacetVO;
+    }
+
+    /**
+     * 按 id 顺序流式扫描 MySQL 重新计数，扫描期间变更过的用户在替换前改为按索引中的当前标签计入，完成后整体替换
+     */
+    public void reconcile() {
+        long start = System.currentTimeMillis();
+        synchronized (lock) {
+            reconcilingCounter = new TagFacetCounter();
+            reconcileScannedTagMap = new HashMap<>();
+            reconcileChangedUserIds = new HashSet<>();
+        }
+        try {
+            QueryWrapper<User> queryWrapper = new QueryWrapper<>();
+            queryWrapper.select("id", "tags");
+            queryWrapper.isNotNull("tags");
+            queryWrapper.orderByAsc("id");
+            userMapper.scanUsers(queryWrapper, resultContext -> {
+                User user = resultContext.getResultObject();
+                int[] tagIds = userTagIndexManager.encodeTags(user.getTags());
+                synchronized (lock) {
+                    // 已经变更过的用户在替换前按当前标签计入
+                    if (!reconcileChangedUserIds.contains(user.getId())) {
+                        reconcilingCounter.add(tagIds, 1);
+                        reconcileScannedTagMap.put(user.getId(), tagIds);
+                    }
+                }
+            });
+            int diff;
+            // 先锁索引（与索引更新后通知监听器的加锁顺序一致），替换期间索引不会变更，读到的当前标签不会再收到一次增量
+            synchronized (userTagIndexManager) {
+                synchronized (lock) {
+                    for (Long userId : reconcileChangedUserIds) {
+                        reconcilingCounter.add(reconcileScannedTagMap.get(userId), -1);
+                        reconcilingCounter.add(userTagIndexManager.getUserTagIds(userId), 1);
+                    }
+                    diff = reconcilingCounter.countTagDiff(tagFacetCounter);
+                    tagFacetCounter = reconcilingCounter;
+                }
+            }
+            reconcileTime = start;
+            log.info("tag facet reconciled, drifted tags: {}, cost: {} ms", diff, System.currentTimeMillis() - start);
+        } finally {
+            synchronized (lock) {
+                reconcilingCounter = null;
+                reconcileScannedTagMap = null;
+                reconcileChangedUserIds = null;
+            }
+        }
+    }
+}
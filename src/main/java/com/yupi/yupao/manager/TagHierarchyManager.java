@@ -0,0 +1,177 @@
+package com.yupi.yupao.manager;
+
+import com.yupi.yupao.config.MatchConfig;
+import com.yupi.yupao.mapper.TagMapper;
+import com.yupi.yupao.model.domain.Tag;
+import com.yupi.yupao.utils.AlgorithmUtils;
+import com.yupi.yupao.utils.TagDictionary;
+import com.yupi.yupao.utils.TagHierarchy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 标签层级管理
+ * 从 tag 表加载标签树，预先计算祖先闭包（{@link TagHierarchy}），匹配打分时不访问数据库
+ * 开启后编辑距离中替换相近标签（如 Java => Spring）的代价按树上距离打折，并召回相近标签的用户
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+@Component
+@Slf4j
+public class TagHierarchyManager {
+
+    /**
+     * 开启层级后的距离单位：插入、删除一个标签的代价
+     */
+    public static final int DISTANCE_SCALE = 100;
+
+    @Resource
+    private TagMapper tagMapper;
+
+    @Resource
+    private UserTagIndexManager userTagIndexManager;
+
+    @Resource
+    private MatchConfig matchConfig;
+
+    /**
+     * 已加载的标签（tag 表 id => 标签），只在 refresh 中修改
+     */
+    private final Map<Long, Tag> tagMap = new HashMap<>();
+
+    private volatile TagHierarchy tagHierarchy = TagHierarchy.EMPTY;
+
+    /**
+     * 树上距离为 i 的两个标签的替换代价
+     */
+    private int[] substitutionCosts;
+
+    private long lastRefreshTime = 0;
+
+    private volatile boolean loaded = false;
+
+    @PostConstruct
+    public void init() {
+        int maxHops = matchConfig.getHierarchyMaxHops();
+        substitutionCosts = new int[maxHops + 1];
+        for (int hops = 0; hops <= maxHops; hops++) {
+            double similarity = Math.pow(matchConfig.getHierarchyDecay(), hops);
+            substitutionCosts[hops] = (int) Math.round(DISTANCE_SCALE * (1 - similarity));
+        }
+        if (!matchConfig.isHierarchyEnabled()) {
+            return;
+        }
+        try {
+            refresh();
+        } catch (Exception e) {
+            // 加载失败不影响启动，定时任务会重试
+            log.error("load tag hierarchy error", e);
+        }
+    }
+
+    public boolean isEnabled() {
+        return matchConfig.isHierarchyEnabled();
+    }
+
+    /**
+     * 增量刷新：只查询上次刷新后更新过的标签，有变化时重建闭包并整体替换
+     *
+     * @return 标签树是否发生了变化（启动时加载失败、之后首次加载成功也视为变化）
+     */
+    public synchronized boolean refresh() {
+        long start = System.currentTimeMillis();
+        Date since = new Date(loaded ? lastRefreshTime - matchConfig.getSyncSlackSeconds() * 1000L : 0);
+        List<Tag> tagList = tagMapper.listTagsUpdatedSince(since);
+        boolean changed = !loaded;
+        for (Tag tag : tagList) {
+            if (Integer.valueOf(1).equals(tag.getIsDelete()) || StringUtils.isBlank(tag.getTagName())) {
+                changed |= tagMap.remove(tag.getId()) != null;
+                continue;
+            }
+            Tag oldTag = tagMap.put(tag.getId(), tag);
+            changed |= oldTag == null || !Objects.equals(oldTag.getTagName(), tag.getTagName())
+                    || !Objects.equals(oldTag.getParentId(), tag.getParentId());
+        }
+        lastRefreshTime = start;
+        if (!changed) {
+            return false;
+        }
+        tagHierarchy = build();
+        loaded = true;
+        log.info("tag hierarchy refreshed, tags: {}, cost: {} ms", tagMap.size(), System.currentTimeMillis() - start);
+        return true;
+    }
+
+    /**
+     * 两个标签的相似度：相同为 1，树上距离为 n 时为 decay^n，无关或距离超过 maxHops 时为 0
+     *
+     * @param tagId1
+     * @param tagId2
+     * @return
+     */
+    public double similarity(int tagId1, int tagId2) {
+        int hops = tagHierarchy.hops(tagId1, tagId2, matchConfig.getHierarchyMaxHops());
+        return hops < 0 ? 0 : Math.pow(matchConfig.getHierarchyDecay(), hops);
+    }
+
+    /**
+     * 两组标签的距离，未开启层级时为普通编辑距离，开启后单位为 {@link #DISTANCE_SCALE}
+     *
+     * @param tagIds1
+     * @param tagIds2
+     * @param maxDistance
+     * @return
+     */
+    public int distance(int[] tagIds1, int[] tagIds2, int maxDistance) {
+        if (!matchConfig.isHierarchyEnabled()) {
+            return AlgorithmUtils.minDistance(tagIds1, tagIds2, maxDistance);
+        }
+        TagHierarchy hierarchy = tagHierarchy;
+        int maxHops = substitutionCosts.length - 1;
+        return AlgorithmUtils.minDistance(tagIds1, tagIds2, maxDistance, DISTANCE_SCALE, (tagId1, tagId2) -> {
+            int hops = hierarchy.hops(tagId1, tagId2, maxHops);
+            return hops < 0 ? DISTANCE_SCALE : substitutionCosts[hops];
+        });
+    }
+
+    /**
+     * 扩展为相近的标签（用于召回候选用户），未开启层级时原样返回
+     *
+     * @param tagIds
+     * @return
+     */
+    public int[] expand(int[] tagIds) {
+        if (!matchConfig.isHierarchyEnabled()) {
+            return tagIds;
+        }
+        return tagHierarchy.expand(tagIds, matchConfig.getHierarchyMaxHops());
+    }
+
+    private TagHierarchy build() {
+        TagDictionary tagDictionary = userTagIndexManager.getTagDictionary();
+        Map<Long, Integer> tagIdMap = new HashMap<>();
+        for (Tag tag : tagMap.values()) {
+            tagIdMap.put(tag.getId(), tagDictionary.getOrCreateId(tag.getTagName()));
+        }
+        int[] parentIds = new int[tagDictionary.size()];
+        Arrays.fill(parentIds, -1);
+        for (Tag tag : tagMap.values()) {
+            Integer parentId = tag.getParentId() == null ? null : tagIdMap.get(tag.getParentId());
+            if (parentId != null) {
+                parentIds[tagIdMap.get(tag.getId())] = parentId;
+            }
+        }
+        return new TagHierarchy(parentIds);
+    }
+}
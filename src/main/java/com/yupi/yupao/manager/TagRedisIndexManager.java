@@ -0,0 +1,219 @@
+package com.yupi.yupao.manager;
+
+import com.yupi.yupao.config.TagConfig;
+import com.yupi.yupao.utils.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Redis 标签索引（tag 表 id => 用户 id 集合），多个节点共享同一份索引
+ * 同时维护用户 => 标签 id 的反向集合，更新时由脚本在 Redis 中求差集，调用方不需要知道旧标签
+ * 搜索时在 Redis 上 SINTER 求交集，只返回命中的用户 id
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+@Component
+@Slf4j
+public class TagRedisIndexManager {
+
+    /**
+     * 标签 => 用户 id 集合
+     */
+    private static final String TAG_KEY_PREFIX = "yupao:tag:";
+
+    /**
+     * 用户 => 标签 id 集合
+     */
+    private static final String USER_TAG_KEY = "yupao:tag:user:%s";
+
+    /**
+     * 用户 id => 最近一次实时更新标签的时间（毫秒），校对时不覆盖在扫描开始之后更新过的用户
+     */
+    private static final String USER_VERSION_KEY = "yupao:tag:user:version";
+
+    /**
+     * 全量校对完成后写入，存在时搜索才使用 Redis 索引
+     */
+    private static final String READY_KEY = "yupao:tag:ready";
+
+    /**
+     * 用新标签替换用户的旧标签
+     * KEYS[1] 用户的标签集合，KEYS[2] 用户的更新时间，ARGV[1] 用户 id，ARGV[2] 标签集合的 key 前缀，
+     * ARGV[3] 实时更新的时间（校对时为空），ARGV[4] 校对扫描的开始时间（实时更新时为空），ARGV[5..] 新标签 id
+     * 校对时在脚本中比较更新时间，不会覆盖读取数据库之后才写入的实时更新
+     * 旧标签只能在脚本中读取，标签集合的 key 在脚本中拼接（只支持单机 / 主从部署）
+     */
+    private static final byte[] SET_USER_TAGS_SCRIPT = (
+            "if ARGV[4] ~= '' then\n" +
+                    "  local version = redis.call('HGET', KEYS[2], ARGV[1])\n" +
+                    "  if version and tonumber(version) >= tonumber(ARGV[4]) then return -1 end\n" +
+                    "end\n" +
+                    "if ARGV[3] ~= '' then redis.call('HSET', KEYS[2], ARGV[1], ARGV[3]) end\n" +
+                    "local oldTagIds = redis.call('SMEMBERS', KEYS[1])\n" +
+                    "local newTagIdSet = {}\n" +
+                    "for i = 5, #ARGV do newTagIdSet[ARGV[i]] = true end\n" +
+                    "for _, tagId in ipairs(oldTagIds) do\n" +
+                    "  if not newTagIdSet[tagId] then redis.call('SREM', ARGV[2] .. tagId, ARGV[1]) end\n" +
+                    "end\n" +
+                    "redis.call('DEL', KEYS[1])\n" +
+                    "for i = 5, #ARGV do\n" +
+                    "  redis.call('SADD', ARGV[2] .. ARGV[i], ARGV[1])\n" +
+                    "  redis.call('SADD', KEYS[1], ARGV[i])\n" +
+                    "end\n" +
+                    "return #oldTagIds").getBytes(StandardCharsets.UTF_8);
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private TagConfig tagConfig;
+
+    public boolean isEnabled() {
+        return tagConfig.isRedisIndexEnabled();
+    }
+
+    /**
+     * 索引是否可以用于搜索（开启且至少完成过一次全量校对）
+     *
+     * @return Redis 异常时返回 false
+     */
+    public boolean isReady() {
+        if (!isEnabled()) {
+            return false;
+        }
+        try {
+            return Boolean.TRUE.equals(stringRedisTemplate.hasKey(READY_KEY));
+        } catch (Exception e) {
+            log.error("redis check tag index ready error", e);
+            return false;
+        }
+    }
+
+    public void markReady() {
+        stringRedisTemplate.opsForValue().set(READY_KEY, String.valueOf(System.currentTimeMillis()));
+    }
+
+    /**
+     * 更新单个用户的标签，在事务中调用时等事务提交后再写入
+     * 写入失败只记录日志，由校对任务修复
+     *
+     * @param userId
+     * @param tagIds 新的标签 id，空集合表示清空（用户删除）
+     */
+    public void setUserTags(long userId, Collection<Long> tagIds) {
+        if (!isEnabled()) {
+            return;
+        }
+        TransactionUtils.runAfterCommit(() -> {
+            try {
+                String version = String.valueOf(System.currentTimeMillis());
+                stringRedisTemplate.execute((RedisCallback<Object>) connection -> evalSetUserTags(connection, userId, tagIds, version, ""));
+            } catch (Exception e) {
+                log.error("redis set user tags error, userId: {}", userId, e);
+            }
+        });
+    }
+
+    /**
+     * 批量更新用户的标签（一次 pipeline），在事务中调用时等事务提交后再写入
+     *
+     * @param userTagIdMap 用户 id => 新的标签 id
+     */
+    public void setUserTags(Map<Long, ? extends Collection<Long>> userTagIdMap) {
+        if (!isEnabled() || userTagIdMap.isEmpty()) {
+            return;
+        }
+        TransactionUtils.runAfterCommit(() -> {
+            try {
+                executeSetUserTags(userTagIdMap, String.valueOf(System.currentTimeMillis()), "");
+            } catch (Exception e) {
+                log.error("redis set user tags error, users: {}", userTagIdMap.size(), e);
+            }
+        });
+    }
+
+    /**
+     * 批量覆盖用户的标签（一次 pipeline，校对任务使用，立即写入，异常直接抛出）
+     * 在 skipAfter 之后实时更新过标签的用户不覆盖，读取数据库到写入 Redis 之间提交的更新不会被旧数据覆盖
+     *
+     * @param userTagIdMap 用户 id => 标签 id
+     * @param skipAfter    校对扫描的开始时间（毫秒，已减去时钟误差）
+     */
+    public void repairUserTags(Map<Long, ? extends Collection<Long>> userTagIdMap, long skipAfter) {
+        executeSetUserTags(userTagIdMap, "", String.valueOf(skipAfter));
+    }
+
+    private void executeSetUserTags(Map<Long, ? extends Collection<Long>> userTagIdMap, String version, String skipAfter) {
+        if (userTagIdMap.isEmpty()) {
+            return;
+        }
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Map.Entry<Long, ? extends Collection<Long>> entry : userTagIdMap.entrySet()) {
+                evalSetUserTags(connection, entry.getKey(), entry.getValue(), version, skipAfter);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 在 Redis 上求拥有全部标签的用户
+     *
+     * @param tagIds tag 表 id
+     * @return Redis 异常时返回 null
+     */
+    public Set<Long> getUserIdsHavingAllTags(Collection<Long> tagIds) {
+        if (tagIds.isEmpty()) {
+            return new HashSet<>();
+        }
+        List<String> keyList = new ArrayList<>(tagIds.size());
+        for (Long tagId : tagIds) {
+            keyList.add(TAG_KEY_PREFIX + tagId);
+        }
+        Set<String> members;
+        try {
+            members = stringRedisTemplate.opsForSet().intersect(keyList);
+        } catch (Exception e) {
+            log.error("redis intersect tag index error", e);
+            return null;
+        }
+        Set<Long> userIdSet = new HashSet<>();
+        if (members != null) {
+            for (String member : members) {
+                userIdSet.add(Long.parseLong(member));
+            }
+        }
+        return userIdSet;
+    }
+
+    private Object evalSetUserTags(RedisConnection connection, long userId, Collection<Long> tagIds, String version, String skipAfter) {
+        // 去重后 key、参数依次为：用户集合、更新时间、用户 id、前缀、更新时间、校对开始时间、标签 id
+        Set<Long> tagIdSet = tagIds == null ? Collections.emptySet() : new HashSet<>(tagIds);
+        byte[][] keysAndArgs = new byte[6 + tagIdSet.size()][];
+        keysAndArgs[0] = String.format(USER_TAG_KEY, userId).getBytes(StandardCharsets.UTF_8);
+        keysAndArgs[1] = USER_VERSION_KEY.getBytes(StandardCharsets.UTF_8);
+        keysAndArgs[2] = String.valueOf(userId).getBytes(StandardCharsets.UTF_8);
+        keysAndArgs[3] = TAG_KEY_PREFIX.getBytes(StandardCharsets.UTF_8);
+        keysAndArgs[4] = version.getBytes(StandardCharsets.UTF_8);
+        keysAndArgs[5] = skipAfter.getBytes(StandardCharsets.UTF_8);
+        int i = 6;
+        for (Long tagId : tagIdSet) {
+            keysAndArgs[i++] = String.valueOf(tagId).getBytes(StandardCharsets.UTF_8);
+        }
+        return connection.scriptingCommands().eval(SET_USER_TAGS_SCRIPT, ReturnType.INTEGER, 2, keysAndArgs);
+    }
+}
@@ -0,0 +1,176 @@
+package com.yupi.yupao.manager;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.yupi.yupao.config.TagConfig;
+import com.yupi.yupao.mapper.UserMapper;
+import com.yupi.yupao.model.domain.Tag;
+import com.yupi.yupao.model.domain.User;
+import com.yupi.yupao.service.TagService;
+import com.yupi.yupao.utils.BkTree;
+import com.yupi.yupao.utils.TagSuggestTrie;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 标签补全、纠错管理
+ * 后台定时用 tag 表和用户标签重建 {@link TagSuggestTrie} 和 {@link BkTree}，建好后整体替换，查询不加锁、不访问数据库
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+@Component
+@Slf4j
+public class TagSuggestManager {
+
+    @Resource
+    private TagService tagService;
+
+    @Resource
+    private UserMapper userMapper;
+
+    @Resource
+    private UserTagIndexManager userTagIndexManager;
+
+    @Resource
+    private TagConfig tagConfig;
+
+    private volatile TagLookup tagLookup = new TagLookup(TagSuggestTrie.EMPTY, new BkTree(), new HashSet<>(), new HashMap<>());
+
+    /**
+     * 按前缀补全标签，前缀没有匹配时返回拼写相近的标签
+     *
+     * @param prefix
+     * @param size
+     * @return 按热度降序的标签名，首次构建完成前返回空列表
+     */
+    public List<String> suggest(String prefix, int size) {
+        TagLookup lookup = tagLookup;
+        List<String> tagNameList = lookup.trie.suggest(prefix, size);
+        if (tagNameList.isEmpty() && !prefix.isEmpty()) {
+            return searchSimilar(lookup, prefix, size);
+        }
+        return tagNameList;
+    }
+
+    /**
+     * 把不存在的标签纠正为拼写最接近的已知标签（如 Jvaa => Java）
+     *
+     * @param tagNameList
+     * @return 已知标签和找不到相近标签的原样保留，去重后按原顺序返回
+     */
+    public List<String> resolveTags(List<String> tagNameList) {
+        TagLookup lookup = tagLookup;
+        Set<String> resolvedTagNameSet = new LinkedHashSet<>();
+        for (String tagName : tagNameList) {
+            if (lookup.tagNameSet.contains(tagName)) {
+                resolvedTagNameSet.add(tagName);
+                continue;
+            }
+            List<String> similarTagNameList = searchSimilar(lookup, tagName, 1);
+            resolvedTagNameSet.add(similarTagNameList.isEmpty() ? tagName : similarTagNameList.get(0));
+        }
+        return new ArrayList<>(resolvedTagNameSet);
+    }
+
+    /**
+     * 重建字典树和 BK 树
+     */
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        Map<String, Integer> tagPopularityMap = userTagIndexManager.isReady()
+                ? userTagIndexManager.getTagUserCounts() : countTagUsersByScan();
+        // tag 表中还没有用户使用的标签热度为 0，与用户标签只差大小写的视为同一个标签
+        Set<String> tagNameSet = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        tagNameSet.addAll(tagPopularityMap.keySet());
+        QueryWrapper<Tag> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select("tagName");
+        for (Tag tag : tagService.list(queryWrapper)) {
+            if (tag.getTagName() != null && tagNameSet.add(tag.getTagName())) {
+                tagPopularityMap.put(tag.getTagName(), 0);
+            }
+        }
+        TagSuggestTrie trie = new TagSuggestTrie(tagPopularityMap, tagConfig.getSuggestMaxSize());
+        // 按热度降序加入 BK 树，距离相同时优先返回热门标签；只差大小写的标签取最热门的一个
+        List<Map.Entry<String, Integer>> entryList = new ArrayList<>(tagPopularityMap.entrySet());
+        entryList.sort((a, b) -> a.getValue().equals(b.getValue())
+                ? a.getKey().compareTo(b.getKey()) : Integer.compare(b.getValue(), a.getValue()));
+        BkTree bkTree = new BkTree();
+        Map<String, String> lowerCaseTagNameMap = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : entryList) {
+            String key = entry.getKey().toLowerCase(Locale.ROOT);
+            if (lowerCaseTagNameMap.putIfAbsent(key, entry.getKey()) == null) {
+                bkTree.add(key);
+            }
+        }
+        tagLookup = new TagLookup(trie, bkTree, new HashSet<>(tagPopularityMap.keySet()), lowerCaseTagNameMap);
+        log.info("tag suggest trie rebuilt, tags: {}, cost: {} ms", tagPopularityMap.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 在 BK 树中查找拼写相近的标签，半径不超过标签长度的一半，避免短标签被纠正成无关的词
+     */
+    private List<String> searchSimilar(TagLookup lookup, String tagName, int size) {
+        String key = tagName.toLowerCase(Locale.ROOT);
+        int radius = Math.min(tagConfig.getFuzzyRadius(), key.length() / 2);
+        List<String> similarTagNameList = new ArrayList<>();
+        for (String similarKey : lookup.bkTree.search(key, radius)) {
+            if (similarTagNameList.size() >= size) {
+                break;
+            }
+            similarTagNameList.add(lookup.lowerCaseTagNameMap.get(similarKey));
+        }
+        return similarTagNameList;
+    }
+
+    /**
+     * 标签索引未就绪时流式扫描用户表统计
+     */
+    private Map<String, Integer> countTagUsersByScan() {
+        QueryWrapper<User> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select("id", "tags");
+        queryWrapper.isNotNull("tags");
+        Map<String, Integer> tagUserCountMap = new HashMap<>();
+        userMapper.scanUsers(queryWrapper, resultContext -> {
+            // 同一用户的重复标签只计一次
+            for (String tagName : new HashSet<>(UserTagIndexManager.parseTags(resultContext.getResultObject().getTags()))) {
+                tagUserCountMap.merge(tagName, 1, Integer::sum);
+            }
+        });
+        return tagUserCountMap;
+    }
+
+    /**
+     * 一次重建的查询结构，整体替换
+     */
+    private static class TagLookup {
+
+        private final TagSuggestTrie trie;
+
+        private final BkTree bkTree;
+
+        private final Set<String> tagNameSet;
+
+        /**
+         * 小写标签名 => 标签名（小写形式相同的标签取最热门的一个）
+         */
+        private final Map<String, String> lowerCaseTagNameMap;
+
+        private TagLookup(TagSuggestTrie trie, BkTree bkTree, Set<String> tagNameSet, Map<String, String> lowerCaseTagNameMap) {
+            this.trie = trie;
+            this.bkTree = bkTree;
+            this.tagNameSet = tagNameSet;
+            this.lowerCaseTagNameMap = lowerCaseTagNameMap;
+        }
+    }
+}
@@ -0,0 +1,407 @@
+package com.yupi.yupao.manager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.yupi.yupao.config.CacheConfig;
+import com.yupi.yupao.model.dto.CacheEntry;
+import com.yupi.yupao.model.vo.CacheStatsVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 二级缓存（本地 Caffeine + Redis）
+ * 本地缓存过期时间很短，只用于挡住热点 key 的重复读取；Redis 中的值是各节点共享的权威副本
+ * 写入或删除 Redis 中的值后，通过 Redis 发布订阅通知其他节点清除本地副本，避免各节点读到不同版本
+ * 每个值带软、硬两个过期时间：软过期后先返回旧值并在后台刷新，硬过期后才同步加载；
+ * 软过期前按 XFetch 算法以逐渐增大的概率提前刷新，热点 key 通常在过期前就已刷新
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+@Component
+@Slf4j
+public class TwoLevelCacheManager implements MessageListener {
+
+    /**
+     * 失效通知频道，消息为 "节点 id|key"
+     */
+    public static final String INVALIDATE_CHANNEL = "yupao:cache:invalidate";
+
+    private static final String MESSAGE_SEPARATOR = "|";
+
+    /**
+     * 当前节点 id，收到自己发出的通知时忽略
+     */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * 本节点正在后台刷新的 key，同一个 key 只提交一次
+     */
+    private final Map<String, Boolean> refreshingKeyMap = new ConcurrentHashMap<>();
+
+    private final LongAdder localHitCount = new LongAdder();
+
+    private final LongAdder localMissCount = new LongAdder();
+
+    private final LongAdder localEvictionCount = new LongAdder();
+
+    private final LongAdder localInvalidationCount = new LongAdder();
+
+    private final LongAdder remoteHitCount = new LongAdder();
+
+    private final LongAdder remoteMissCount = new LongAdder();
+
+    private final LongAdder remoteWriteCount = new LongAdder();
+
+    private final LongAdder remoteEvictionCount = new LongAdder();
+
+    private final LongAdder remoteErrorCount = new LongAdder();
+
+    private final LongAdder staleServeCount = new LongAdder();
+
+    private final LongAdder earlyRefreshCount = new LongAdder();
+
+    private final LongAdder refreshCount = new LongAdder();
+
+    private final LongAdder refreshErrorCount = new LongAdder();
+
+    @Resource
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Resource
+    private SingleFlightLoader singleFlightLoader;
+
+    @Resource
+    private CacheConfig cacheConfig;
+
+    private Cache<String, CacheEntry> localCache;
+
+    private ThreadPoolExecutor refreshExecutor;
+
+    @PostConstruct
+    public void init() {
+        localCache = Caffeine.newBuilder()
+                .maximumSize(cacheConfig.getLocalMaxSize())
+                .expireAfterWrite(cacheConfig.getLocalExpireMillis(), TimeUnit.MILLISECONDS)
+                .removalListener((String key, CacheEntry value, RemovalCause cause) -> {
+                    if (cause.wasEvicted()) {
+                        localEvictionCount.increment();
+                    }
+                })
+                .build();
+        // 队列满时拒绝刷新任务，旧值在硬过期前仍然可用
+        refreshExecutor = new ThreadPoolExecutor(cacheConfig.getRefreshThreads(), cacheConfig.getRefreshThreads(),
+                0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(cacheConfig.getRefreshQueueSize()));
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATE_CHANNEL));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * 依次读取本地缓存、Redis，Redis 命中时回填本地缓存
+     *
+     * @param key
+     * @return 不存在、已硬过期或 Redis 异常时返回 null
+     */
+    public Object get(String key) {
+        CacheEntry entry = getEntry(key);
+        return entry == null || entry.getHardExpireTime() <= System.currentTimeMillis() ? null : entry.getValue();
+    }
+
+    /**
+     * 读取缓存，未命中时加载并写入
+     * 1. 软过期前直接返回，越接近软过期越可能提前在后台刷新
+     * 2. 软过期后、硬过期前返回旧值，同时在后台刷新
+     * 3. 不存在或已硬过期时同步加载：本节点内等待同一个加载，节点之间由拿到锁的节点重建
+     *
+     * @param key
+     * @param softExpireMillis 软过期时间
+     * @param hardExpireMillis 硬过期时间（Redis 中的过期时间）
+     * @param loader           返回 null 时不写缓存
+     * @return
+     */
+    public Object getOrLoad(String key, long softExpireMillis, long hardExpireMillis, Supplier<?> loader) {
+        CacheEntry entry = getEntry(key);
+        long now = System.currentTimeMillis();
+        if (entry != null && now < entry.getHardExpireTime()) {
+            if (now >= entry.getSoftExpireTime()) {
+                staleServeCount.increment();
+                refreshAsync(key, entry, softExpireMillis, hardExpireMillis, loader);
+            } else if (shouldRefreshEarly(now, entry, cacheConfig.getEarlyRefreshBeta(), ThreadLocalRandom.current().nextDouble())) {
+                earlyRefreshCount.increment();
+                refreshAsync(key, entry, softExpireMillis, hardExpireMillis, loader);
+            }
+            return entry.getValue();
+        }
+        return singleFlightLoader.load(key, () -> {
+            // 等锁期间其他节点可能已经写好
+            CacheEntry remoteEntry = getRemote(key);
+            return remoteEntry == null || remoteEntry.getHardExpireTime() <= System.currentTimeMillis()
+                    ? null : remoteEntry.getValue();
+        }, () -> load(key, softExpireMillis, hardExpireMillis, loader));
+    }
+
+    /**
+     * 写入两级缓存，并通知其他节点清除旧的本地副本
+     * Redis 写入失败只记录日志，本地副本仍然写入
+     *
+     * @param key
+     * @param value            不能为 null
+     * @param softExpireMillis 软过期时间
+     * @param hardExpireMillis 硬过期时间（Redis 中的过期时间）
+     */
+    public void put(String key, Object value, long softExpireMillis, long hardExpireMillis) {
+        putEntry(key, newEntry(value, softExpireMillis, hardExpireMillis, 0));
+    }
+
+    /**
+     * 批量写入 Redis（一次 pipeline，连同失效通知），用于预热，异常直接抛出
+     * 不写入本节点的本地缓存，避免挤掉正在使用的热点 key
+     *
+     * @param valueMap         key => 值
+     * @param softExpireMillis 软过期时间
+     * @param hardExpireMillis 硬过期时间（Redis 中的过期时间）
+     */
+    @SuppressWarnings("unchecked")
+    public void putAll(Map<String, ?> valueMap, long softExpireMillis, long hardExpireMillis) {
+        if (valueMap.isEmpty()) {
+            return;
+        }
+        RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+        byte[] channel = INVALIDATE_CHANNEL.getBytes(StandardCharsets.UTF_8);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Map.Entry<String, ?> valueEntry : valueMap.entrySet()) {
+                CacheEntry entry = newEntry(valueEntry.getValue(), softExpireMillis, hardExpireMillis, 0);
+                connection.pSetEx(valueEntry.getKey().getBytes(StandardCharsets.UTF_8),
+                        Math.max(softExpireMillis, hardExpireMillis), valueSerializer.serialize(entry));
+                connection.publish(channel, (nodeId + MESSAGE_SEPARATOR + valueEntry.getKey()).getBytes(StandardCharsets.UTF_8));
+            }
+            return null;
+        });
+        localCache.invalidateAll(valueMap.keySet());
+        remoteWriteCount.add(valueMap.size());
+    }
+
+    /**
+     * 删除两级缓存，并通知其他节点清除本地副本
+     *
+     * @param key
+     */
+    public void evict(String key) {
+        localCache.invalidate(key);
+        try {
+            if (Boolean.TRUE.equals(redisTemplate.delete(key))) {
+                remoteEvictionCount.increment();
+            }
+            publishInvalidate(key);
+        } catch (Exception e) {
+            remoteErrorCount.increment();
+            log.error("redis delete cache error, key: {}", key, e);
+        }
+    }
+
+    /**
+     * 收到失效通知
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int index = body.indexOf(MESSAGE_SEPARATOR);
+        if (index < 0 || nodeId.equals(body.substring(0, index))) {
+            return;
+        }
+        String key = body.substring(index + 1);
+        if (localCache.getIfPresent(key) != null) {
+            localInvalidationCount.increment();
+        }
+        localCache.invalidate(key);
+    }
+
+    public CacheStatsVO getStats() {
+        CacheStatsVO cacheStatsVO = new CacheStatsVO();
+        cacheStatsVO.setLocalSize(localCache.estimatedSize());
+        cacheStatsVO.setLocalHitCount(localHitCount.sum());
+        cacheStatsVO.setLocalMissCount(localMissCount.sum());
+        cacheStatsVO.setLocalEvictionCount(localEvictionCount.sum());
+        cacheStatsVO.setLocalInvalidationCount(localInvalidationCount.sum());
+        cacheStatsVO.setRemoteHitCount(remoteHitCount.sum());
+        cacheStatsVO.setRemoteMissCount(remoteMissCount.sum());
+        cacheStatsVO.setRemoteWriteCount(remoteWriteCount.sum());
+        cacheStatsVO.setRemoteEvictionCount(remoteEvictionCount.sum());
+        cacheStatsVO.setRemoteErrorCount(remoteErrorCount.sum());
+        cacheStatsVO.setLoadCount(singleFlightLoader.getLoadCount());
+        cacheStatsVO.setLocalCoalescedCount(singleFlightLoader.getLocalCoalescedCount());
+        cacheStatsVO.setRemoteCoalescedCount(singleFlightLoader.getRemoteCoalescedCount());
+        cacheStatsVO.setStaleServeCount(staleServeCount.sum());
+        cacheStatsVO.setEarlyRefreshCount(earlyRefreshCount.sum());
+        cacheStatsVO.setRefreshCount(refreshCount.sum());
+        cacheStatsVO.setRefreshErrorCount(refreshErrorCount.sum());
+        return cacheStatsVO;
+    }
+
+    /**
+     * 软过期前是否提前刷新（XFetch）：now - loadMillis * beta * ln(random) >= 软过期时间
+     * 距软过期越近、加载越慢，提前刷新的概率越大
+     *
+     * @param now
+     * @param entry
+     * @param beta   大于 1 更倾向提前刷新，0 为关闭
+     * @param random [0, 1) 的随机数
+     * @return
+     */
+    public static boolean shouldRefreshEarly(long now, CacheEntry entry, double beta, double random) {
+        if (beta <= 0 || entry.getLoadMillis() <= 0) {
+            return false;
+        }
+        // random 为 0 时 ln 为负无穷，一定刷新
+        return now - entry.getLoadMillis() * beta * Math.log(random) >= entry.getSoftExpireTime();
+    }
+
+    /**
+     * 加载并写入，记录加载耗时用于提前刷新
+     */
+    private Object load(String key, long softExpireMillis, long hardExpireMillis, Supplier<?> loader) {
+        long startTime = System.currentTimeMillis();
+        Object value = loader.get();
+        if (value != null) {
+            putEntry(key, newEntry(value, softExpireMillis, hardExpireMillis, System.currentTimeMillis() - startTime));
+        }
+        return value;
+    }
+
+    /**
+     * 提交后台刷新，本节点同一个 key 只提交一次，节点之间由重建锁合并
+     */
+    private void refreshAsync(String key, CacheEntry staleEntry, long softExpireMillis, long hardExpireMillis, Supplier<?> loader) {
+        if (refreshingKeyMap.putIfAbsent(key, Boolean.TRUE) != null) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    singleFlightLoader.load(key, () -> {
+                        // 其他节点已经刷新过则不再加载
+                        CacheEntry remoteEntry = getRemote(key);
+                        return remoteEntry != null && remoteEntry.getSoftExpireTime() > staleEntry.getSoftExpireTime()
+                                ? remoteEntry.getValue() : null;
+                    }, () -> {
+                        refreshCount.increment();
+                        return load(key, softExpireMillis, hardExpireMillis, loader);
+                    });
+                } catch (Exception e) {
+                    refreshErrorCount.increment();
+                    log.error("refresh cache error, key: {}", key, e);
+                } finally {
+                    refreshingKeyMap.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshingKeyMap.remove(key);
+            refreshErrorCount.increment();
+        }
+    }
+
+    private CacheEntry getEntry(String key) {
+        CacheEntry entry = localCache.getIfPresent(key);
+        if (entry != null) {
+            localHitCount.increment();
+            return entry;
+        }
+        localMissCount.increment();
+        Object value;
+        try {
+            value = redisTemplate.opsForValue().get(key);
+        } catch (Exception e) {
+            remoteErrorCount.increment();
+            log.error("redis get cache error, key: {}", key, e);
+            return null;
+        }
+        // 旧版本直接缓存的值没有过期时间，按未命中处理
+        if (!(value instanceof CacheEntry)) {
+            remoteMissCount.increment();
+            return null;
+        }
+        remoteHitCount.increment();
+        entry = (CacheEntry) value;
+        localCache.put(key, entry);
+        return entry;
+    }
+
+    /**
+     * 只读 Redis（等待重建锁之后确认其他节点是否已写入，不计入命中统计）
+     */
+    private CacheEntry getRemote(String key) {
+        try {
+            Object value = redisTemplate.opsForValue().get(key);
+            if (!(value instanceof CacheEntry)) {
+                return null;
+            }
+            localCache.put(key, (CacheEntry) value);
+            return (CacheEntry) value;
+        } catch (Exception e) {
+            remoteErrorCount.increment();
+            log.error("redis get cache error, key: {}", key, e);
+            return null;
+        }
+    }
+
+    private void putEntry(String key, CacheEntry entry) {
+        localCache.put(key, entry);
+        try {
+            long expireMillis = entry.getHardExpireTime() - System.currentTimeMillis();
+            redisTemplate.opsForValue().set(key, entry, Math.max(1, expireMillis), TimeUnit.MILLISECONDS);
+            remoteWriteCount.increment();
+            publishInvalidate(key);
+        } catch (Exception e) {
+            remoteErrorCount.increment();
+            log.error("redis set cache error, key: {}", key, e);
+        }
+    }
+
+    private static CacheEntry newEntry(Object value, long softExpireMillis, long hardExpireMillis, long loadMillis) {
+        long now = System.currentTimeMillis();
+        CacheEntry entry = new CacheEntry();
+        entry.setValue(value);
+        entry.setSoftExpireTime(now + softExpireMillis);
+        entry.setHardExpireTime(now + Math.max(softExpireMillis, hardExpireMillis));
+        entry.setLoadMillis(loadMillis);
+        return entry;
+    }
+
+    private void publishInvalidate(String key) {
+        stringRedisTemplate.convertAndSend(INVALIDATE_CHANNEL, nodeId + MESSAGE_SEPARATOR + key);
+    }
+}
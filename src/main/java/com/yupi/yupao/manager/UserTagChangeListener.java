@@ -0,0 +1,20 @@
+package com.yupi.yupao.manager;
+
+/**
+ * 用户标签变更监听器
+ * 由 {@link UserTagIndexManager} 在索引构建和增量更新时同步回调，实现类需要保证足够快
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+public interface UserTagChangeListener {
+
+    /**
+     * 用户标签变更
+     *
+     * @param userId
+     * @param oldTagIds 变更前的标签 id，新用户为 null
+     * @param newTagIds 变更后的标签 id，用户被删除或标签清空时为空数组
+     */
+    void onUserTagsChanged(long userId, int[] oldTagIds, int[] newTagIds);
+}
@@ -0,0 +1,536 @@
+package com.yupi.yupao.manager;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.reflect.TypeToken;
+import com.yupi.yupao.config.MatchConfig;
+import com.yupi.yupao.mapper.UserMapper;
+import com.yupi.yupao.model.domain.User;
+import com.yupi.yupao.utils.TagDictionary;
+import com.yupi.yupao.utils.UserTagSnapshot;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+/**
+ * 用户标签倒排索引（标签 => 用户 id 列表）
+ * 启动时异步构建，注册、更新用户时增量维护，匹配时只需要对有共同标签的用户打分
+ * 标签统一编码为 {@link TagDictionary} 中的 int id，用户标签以 int[] 缓存，匹配时无需解析 json
+ * 索引定期写入本地快照（{@link UserTagSnapshot}），重启时加载快照并按 updateTime 追增量，不再全表查询
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+@Component
+@Slf4j
+public class UserTagIndexManager {
+
+    /**
+     * 构建索引时每批读取的用户数
+     */
+    private static final int BUILD_BATCH_SIZE = 1000;
+
+    private static final Type TAG_LIST_TYPE = new TypeToken<List<String>>() {
+    }.getType();
+
+    private static final Gson GSON = new Gson();
+
+    @Resource
+    private UserMapper userMapper;
+
+    @Resource
+    private MatchConfig matchConfig;
+
+    private final TagDictionary tagDictionary = new TagDictionary();
+
+    /**
+     * 标签 id => 拥有该标签的用户 id
+     */
+    private final Map<Integer, Set<Long>> tagUserIdMap = new ConcurrentHashMap<>();
+
+    /**
+     * 用户 id => 标签 id 数组
+     */
+    private final Map<Long, int[]> userTagMap = new ConcurrentHashMap<>();
+
+    /**
+     * 标签变更监听器（LSH 等衍生索引）
+     */
+    private final List<UserTagChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 构建（或加载快照、追增量）期间被增量更新过的用户，构建线程不能用旧数据覆盖它们
+     */
+    private final Set<Long> updatedDuringBuild = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 全量构建、加载快照、追增量互斥执行
+     */
+    private final Object syncLock = new Object();
+
+    private volatile boolean building = false;
+
+    private volatile boolean ready = false;
+
+    /**
+     * 索引数据对应的数据库时间点（毫秒），之后的变更需要按 updateTime 追增量
+     */
+    private volatile long watermark = 0;
+
+    /**
+     * 读取当前的标签变更版本 [epoch, seq]（由匹配缓存注册，读取失败返回 null）
+     */
+    private volatile Supplier<long[]> changeVersionSupplier;
+
+    /**
+     * 索引已经包含的标签变更版本：扫描数据库前读取，扫描成功后生效，此前记录的变更都已提交、已被扫描到
+     * 其他节点之后的变更要等下次追增量才会进入索引，未知时为 null
+     */
+    private volatile long[] syncedVersion;
+
+    /**
+     * 应用启动后异步构建，不阻塞启动
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        Thread thread = new Thread(this::loadOrRebuild, "user-tag-index-builder");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 优先加载本地快照并追增量，快照不可用或追增量失败时全量构建
+     */
+    public void loadOrRebuild() {
+        if (matchConfig.isSnapshotEnabled() && loadSnapshot()) {
+            if (catchUp()) {
+                ready = true;
+                return;
+            }
+            // 快照可能已经很旧，不能当作最新数据使用
+            log.warn("catch up user tag index after loading snapshot failed, rebuild from database");
+        }
+        rebuild();
+    }
+
+    /**
+     * 清空索引后按 id 分批全量构建（快照加载失败时可能已写入部分用户，其中可能有数据库中已不存在的用户）
+     */
+    public void rebuild() {
+        synchronized (syncLock) {
+            clear();
+            doRebuild();
+        }
+    }
+
+    private void doRebuild() {
+        building = true;
+        long start = System.currentTimeMillis();
+        long[] version = readChangeVersion();
+        try {
+            long lastId = 0;
+            while (true) {
+                QueryWrapper<User> queryWrapper = new QueryWrapper<>();
+                queryWrapper.select("id", "tags");
+                queryWrapper.isNotNull("tags");
+                queryWrapper.gt("id", lastId);
+                queryWrapper.orderByAsc("id");
+                queryWrapper.last("limit " + BUILD_BATCH_SIZE);
+                List<User> userList = userMapper.selectList(queryWrapper);
+                if (CollectionUtils.isEmpty(userList)) {
+                    break;
+                }
+                for (User user : userList) {
+                    // 构建期间已经被增量更新过的用户以增量数据为准
+                    if (!updatedDuringBuild.contains(user.getId())) {
+                        putUserTags(user.getId(), tagDictionary.encode(parseTags(user.getTags())));
+                    }
+                }
+                lastId = userList.get(userList.size() - 1).getId();
+            }
+            watermark = start;
+            syncedVersion = version;
+            ready = true;
+            log.info("user tag index built, users: {}, tags: {}, cost: {} ms",
+                    userTagMap.size(), tagUserIdMap.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("build user tag index error", e);
+        } finally {
+            building = false;
+            updatedDuringBuild.clear();
+        }
+    }
+
+    /**
+     * 加载本地快照
+     *
+     * @return 快照不存在或损坏时返回 false
+     */
+    private boolean loadSnapshot() {
+        Path path = Paths.get(matchConfig.getSnapshotPath());
+        if (!Files.exists(path)) {
+            return false;
+        }
+        synchronized (syncLock) {
+            building = true;
+            long start = System.currentTimeMillis();
+            try {
+                UserTagSnapshot snapshot = UserTagSnapshot.load(path);
+                // 快照中的标签 id => 当前字典中的 id
+                String[] tagNames = snapshot.getTagNames();
+                int[] tagIdMapping = new int[tagNames.length];
+                for (int i = 0; i < tagNames.length; i++) {
+                    tagIdMapping[i] = tagDictionary.getOrCreateId(tagNames[i]);
+                }
+                int userCount = snapshot.getUserCount();
+                for (int i = 0; i < userCount; i++) {
+                    long userId = snapshot.getUserId(i);
+                    if (updatedDuringBuild.contains(userId)) {
+                        continue;
+                    }
+                    int[] tagIds = snapshot.getTagIds(i);
+                    for (int j = 0; j < tagIds.length; j++) {
+                        tagIds[j] = tagIdMapping[tagIds[j]];
+                    }
+                    putUserTags(userId, tagIds);
+                }
+                watermark = snapshot.getWatermark();
+                log.info("user tag index loaded from snapshot, users: {}, tags: {}, cost: {} ms",
+                        userCount, tagNames.length, System.currentTimeMillis() - start);
+                return true;
+            } catch (IOException | RuntimeException e) {
+                log.warn("load user tag index snapshot error, rebuild from database", e);
+                return false;
+            } finally {
+                building = false;
+                updatedDuringBuild.clear();
+            }
+        }
+    }
+
+    /**
+     * 按 updateTime 追上水位之后的变更（包括其他节点的修改和删除）
+     *
+     * @return 查询数据库失败时返回 false，水位不变
+     */
+    public boolean catchUp() {
+        synchronized (syncLock) {
+            building = true;
+            long start = System.currentTimeMillis();
+            // 回退一段时间，容忍应用与数据库的时钟误差以及 updateTime 的秒级精度
+            Date since = new Date(watermark - matchConfig.getSyncSlackSeconds() * 1000L);
+            long[] version = readChangeVersion();
+            int[] changedCount = new int[1];
+            try {
+                userMapper.scanUserTagsUpdatedSince(since, resultContext -> {
+                    User user = resultContext.getResultObject();
+                    long userId = user.getId();
+                    if (updatedDuringBuild.contains(userId)) {
+                        return;
+                    }
+                    int[] tagIds = Integer.valueOf(1).equals(user.getIsDelete()) ? new int[0] : encodeTags(user.getTags());
+                    int[] oldTagIds = userTagMap.get(userId);
+                    // 只有其他字段变化的用户不需要更新
+                    if (oldTagIds == null ? tagIds.length > 0 : !Arrays.equals(oldTagIds, tagIds)) {
+                        putUserTags(userId, tagIds);
+                        changedCount[0]++;
+                    }
+                });
+                watermark = start;
+                // 读取版本失败时保留之前的版本，索引只会更新，之前的版本仍然成立
+                if (version != null) {
+                    syncedVersion = version;
+                }
+                log.info("user tag index caught up since {}, changed users: {}, cost: {} ms",
+                        since, changedCount[0], System.currentTimeMillis() - start);
+                return true;
+            } catch (Exception e) {
+                log.error("catch up user tag index error", e);
+                return false;
+            } finally {
+                building = false;
+                updatedDuringBuild.clear();
+            }
+        }
+    }
+
+    /**
+     * 写入本地快照
+     */
+    public void writeSnapshot() {
+        if (!ready || !matchConfig.isSnapshotEnabled()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            // 先取水位再复制数据，复制期间的变更在下次加载时会重新追上
+            UserTagSnapshot.write(Paths.get(matchConfig.getSnapshotPath()), watermark, tagDictionary, userTagMap);
+            log.info("user tag index snapshot written, users: {}, cost: {} ms",
+                    userTagMap.size(), System.currentTimeMillis() - start);
+        } catch (IOException e) {
+            log.error("write user tag index snapshot error", e);
+        }
+    }
+
+    @PreDestroy
+    public void writeSnapshotOnShutdown() {
+        writeSnapshot();
+    }
+
+    /**
+     * 索引是否可用（构建完成前需要回退到全表扫描）
+     *
+     * @return
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 用户标签变更时增量更新索引
+     *
+     * @param userId
+     * @param tags   标签 json 列表
+     */
+    public void updateUserTags(long userId, String tags) {
+        if (building) {
+            updatedDuringBuild.add(userId);
+        }
+        putUserTags(userId, tagDictionary.encode(parseTags(tags)));
+    }
+
+    /**
+     * 用户删除时移出索引
+     *
+     * @param userId
+     */
+    public void removeUser(long userId) {
+        if (building) {
+            updatedDuringBuild.add(userId);
+        }
+        putUserTags(userId, new int[0]);
+    }
+
+    /**
+     * 获取与给定标签至少有一个相同标签的用户 id
+     *
+     * @param tagIds
+     * @return
+     */
+    public Set<Long> getCandidateUserIds(int[] tagIds) {
+        Set<Long> candidateIdSet = new HashSet<>();
+        for (int tagId : tagIds) {
+            Set<Long> userIdSet = tagUserIdMap.get(tagId);
+            if (userIdSet != null) {
+                candidateIdSet.addAll(userIdSet);
+            }
+        }
+        return candidateIdSet;
+    }
+
+    /**
+     * 获取拥有全部给定标签的用户 id（标签名不区分大小写，与 Redis 索引、user_tag 表的搜索结果一致）
+     *
+     * @param tagNameList
+     * @return
+     */
+    public Set<Long> getUserIdsHavingAllTags(Collection<String> tagNameList) {
+        Set<String> tagNameSet = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        tagNameSet.addAll(tagNameList);
+        List<Set<Long>> postingList = new ArrayList<>();
+        for (String tagName : tagNameSet) {
+            int[] tagIds = tagDictionary.getIdsIgnoreCase(tagName);
+            Set<Long> userIdSet;
+            if (tagIds.length == 1) {
+                userIdSet = tagUserIdMap.get(tagIds[0]);
+            } else {
+                // 只有大小写不同的标签合并为一个列表
+                userIdSet = new HashSet<>();
+                for (int tagId : tagIds) {
+                    Set<Long> tagUserIdSet = tagUserIdMap.get(tagId);
+                    if (tagUserIdSet != null) {
+                        userIdSet.addAll(tagUserIdSet);
+                    }
+                }
+            }
+            // 任意一个标签没有用户，交集一定为空
+            if (userIdSet == null || userIdSet.isEmpty()) {
+                return new HashSet<>();
+            }
+            postingList.add(userIdSet);
+        }
+        if (postingList.isEmpty()) {
+            return new HashSet<>();
+        }
+        // 从最短的列表开始求交集
+        postingList.sort(Comparator.comparingInt(Set::size));
+        Set<Long> resultSet = new HashSet<>(postingList.get(0));
+        for (int i = 1; i < postingList.size() && !resultSet.isEmpty(); i++) {
+            resultSet.retainAll(postingList.get(i));
+        }
+        return resultSet;
+    }
+
+    /**
+     * 用户标签是否包含全部给定标签（标签名不区分大小写，与 {@link #getUserIdsHavingAllTags} 一致）
+     *
+     * @param tagList     用户的标签
+     * @param tagNameList 要拥有的标签
+     * @return
+     */
+    public static boolean hasAllTags(Collection<String> tagList, Collection<String> tagNameList) {
+        Set<String> tagSet = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        tagSet.addAll(tagList);
+        return tagSet.containsAll(tagNameList);
+    }
+
+    /**
+     * 统计每个标签的用户数
+     *
+     * @return 标签名 => 用户数
+     */
+    public Map<String, Integer> getTagUserCounts() {
+        Map<String, Integer> tagUserCountMap = new HashMap<>();
+        for (Map.Entry<Integer, Set<Long>> entry : tagUserIdMap.entrySet()) {
+            String tagName = tagDictionary.getTag(entry.getKey());
+            if (tagName != null) {
+                tagUserCountMap.put(tagName, entry.getValue().size());
+            }
+        }
+        return tagUserCountMap;
+    }
+
+    /**
+     * 获取索引中的用户标签 id 数组
+     *
+     * @param userId
+     * @return 不在索引中返回 null
+     */
+    public int[] getUserTagIds(long userId) {
+        return userTagMap.get(userId);
+    }
+
+    /**
+     * 将标签 json 列表编码为标签 id 数组
+     *
+     * @param tags
+     * @return
+     */
+    public int[] encodeTags(String tags) {
+        return tagDictionary.encode(parseTags(tags));
+    }
+
+    /**
+     * 注册标签变更版本的读取方法，需要在索引构建前（应用启动完成前）注册
+     *
+     * @param changeVersionSupplier
+     */
+    public void setChangeVersionSupplier(Supplier<long[]> changeVersionSupplier) {
+        this.changeVersionSupplier = changeVersionSupplier;
+    }
+
+    /**
+     * 获取索引已经包含的标签变更版本 [epoch, seq]
+     *
+     * @return 未知时返回 null
+     */
+    public long[] getSyncedVersion() {
+        return syncedVersion;
+    }
+
+    public TagDictionary getTagDictionary() {
+        return tagDictionary;
+    }
+
+    /**
+     * 注册标签变更监听器，需要在索引构建前（应用启动完成前）注册才能收到全量数据
+     *
+     * @param listener
+     */
+    public void addListener(UserTagChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 解析标签 json 列表，格式错误时视为无标签
+     *
+     * @param tags
+     * @return
+     */
+    public static List<String> parseTags(String tags) {
+        if (StringUtils.isBlank(tags)) {
+            return Collections.emptyList();
+        }
+        try {
+            List<String> tagList = GSON.fromJson(tags, TAG_LIST_TYPE);
+            if (tagList == null) {
+                return Collections.emptyList();
+            }
+            tagList.removeIf(StringUtils::isBlank);
+            return tagList;
+        } catch (JsonSyntaxException e) {
+            log.warn("invalid tags json: {}", tags);
+            return Collections.emptyList();
+        }
+    }
+
+    private long[] readChangeVersion() {
+        Supplier<long[]> supplier = changeVersionSupplier;
+        return supplier == null ? null : supplier.get();
+    }
+
+    /**
+     * 移除索引中的全部用户（逐个通知监听器，衍生索引一起清空）
+     */
+    private void clear() {
+        for (Long userId : new ArrayList<>(userTagMap.keySet())) {
+            putUserTags(userId, new int[0]);
+        }
+        watermark = 0;
+        syncedVersion = null;
+    }
+
+    /**
+     * 在索引对象锁内更新并通知监听器，监听器需要读取与自身一致的索引数据时可以先锁住索引对象
+     */
+    private synchronized void putUserTags(long userId, int[] tagIds) {
+        int[] oldTagIds = tagIds.length == 0 ? userTagMap.remove(userId) : userTagMap.put(userId, tagIds);
+        if (oldTagIds != null) {
+            for (int oldTag : oldTagIds) {
+                Set<Long> userIdSet = tagUserIdMap.get(oldTag);
+                if (userIdSet != null) {
+                    userIdSet.remove(userId);
+                    if (userIdSet.isEmpty()) {
+                        tagUserIdMap.remove(oldTag);
+                    }
+                }
+            }
+        }
+        for (int tag : tagIds) {
+            tagUserIdMap.computeIfAbsent(tag, key -> ConcurrentHashMap.newKeySet()).add(userId);
+        }
+        for (UserTagChangeListener listener : listeners) {
+            try {
+                listener.onUserTagsChanged(userId, oldTagIds, tagIds);
+            } catch (Exception e) {
+                log.error("user tag change listener error, userId: {}", userId, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.yupi.yupao.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.yupi.yupao.model.domain.Tag;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 标签 Mapper
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+public interface TagMapper extends BaseMapper<Tag> {
+
+    /**
+     * 查询某时间之后更新过的标签（包含已逻辑删除的标签，用于增量刷新）
+     *
+     * @param updateTime
+     * @return
+     */
+    List<Tag> listTagsUpdatedSince(@Param("updateTime") Date updateTime);
+
+    /**
+     * 根据标签名查询（包含已逻辑删除的标签，标签名唯一，删除后同名标签不能再插入）
+     *
+     * @param tagNameList
+     * @return
+     */
+    List<Tag> listByTagNames(@Param("tagNameList") Collection<String> tagNameList);
+
+    /**
+     * 批量插入，同名标签已存在时忽略
+     *
+     * @param tagList
+     * @return
+     */
+    int insertIgnoreBatch(@Param("tagList") List<Tag> tagList);
+}
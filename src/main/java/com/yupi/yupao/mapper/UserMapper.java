@@ -2,8 +2,15 @@ package com.yupi.yupao.mapper;
 
 // [鱼皮的知识星球](https://t.zsxq.com/0emozsIJh) 从 0 到 1 求职指导，斩获 offer！1 对 1 简历优化服务、200+ 真实简历和建议参考、2000+ 求职面试经验分享、25w 字前后端精选面试题
 
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.baomidou.mybatisplus.core.toolkit.Constants;
 import com.yupi.yupao.model.domain.User;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.util.Date;
+import java.util.List;
 
 /**
  * 用户 Mapper
@@ -13,6 +20,31 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
  */
 public interface UserMapper extends BaseMapper<User> {
 
+    /**
+     * 流式扫描未删除的用户，逐行回调，不会把全部结果加载到内存
+     * 回调中不能再使用同一个数据库连接查询（结果集未读完）
+     *
+     * @param queryWrapper  查询条件，可以为 null
+     * @param resultHandler
+     */
+    void scanUsers(@Param(Constants.WRAPPER) Wrapper<User> queryWrapper, ResultHandler<User> resultHandler);
+
+    /**
+     * 流式扫描某时间之后更新过的用户（只查询 id、tags、isDelete，包含已删除的用户）
+     *
+     * @param updateTime
+     * @param resultHandler
+     */
+    void scanUserTagsUpdatedSince(@Param("updateTime") Date updateTime, ResultHandler<User> resultHandler);
+
+    /**
+     * 按 id 分批查询用户标签（只查询 id、tags、isDelete、updateTime，包含已删除的用户）
+     *
+     * @param id    上一批最后一个用户 id
+     * @param limit
+     * @return
+     */
+    List<User> listUserTagsAfterId(@Param("id") long id, @Param("limit") int limit);
 }
 
 
@@ -0,0 +1,51 @@
+package com.yupi.yupao.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.yupi.yupao.model.domain.User;
+import com.yupi.yupao.model.domain.UserTag;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 用户标签关系 Mapper
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+public interface UserTagMapper extends BaseMapper<UserTag> {
+
+    /**
+     * 批量插入，已存在的关系忽略
+     *
+     * @param userTagList
+     * @return
+     */
+    int insertIgnoreBatch(@Param("userTagList") List<UserTag> userTagList);
+
+    /**
+     * 删除用户不在给定列表中的标签关系
+     *
+     * @param userId
+     * @param tagIdList 为空时删除该用户的全部关系
+     * @return
+     */
+    int deleteByUserIdExcludeTagIds(@Param("userId") long userId, @Param("tagIdList") Collection<Long> tagIdList);
+
+    /**
+     * 删除给定用户的全部关系
+     *
+     * @param userIdList 不能为空
+     * @return
+     */
+    int deleteByUserIds(@Param("userIdList") Collection<Long> userIdList);
+
+    /**
+     * 查询拥有全部给定标签的未删除用户（按 userId 分组计数，走 user_tag 索引）
+     *
+     * @param tagNameList 去重后的标签名
+     * @return
+     */
+    List<User> listUsersHavingAllTags(@Param("tagNameList") Collection<String> tagNameList);
+}
@@ -0,0 +1,62 @@
+package com.yupi.yupao.model.domain;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * 标签实体
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+@TableName(value = "tag")
+@Data
+public class Tag implements Serializable {
+    /**
+     * id
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 标签名称
+     */
+    private String tagName;
+
+    /**
+     * 用户 id
+     */
+    private Long userId;
+
+    /**
+     * 父标签 id
+     */
+    private Long parentId;
+
+    /**
+     * 0 - 不是, 1 - 父标签
+     */
+    private Integer isParent;
+
+    /**
+     * 创建时间
+     */
+    private Date createTime;
+
+    /**
+     *
+     */
+    private Date updateTime;
+
+    /**
+     * 是否删除
+     */
+    @TableLogic
+    private Integer isDelete;
+
+    @TableField(exist = false)
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,37 @@
+package com.yupi.yupao.model.domain;
+
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * 用户标签关系实体（由 user.tags 同步，主键为 userId + tagId）
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+@TableName(value = "user_tag")
+@Data
+public class UserTag implements Serializable {
+
+    /**
+     * 用户 id
+     */
+    private Long userId;
+
+    /**
+     * 标签 id
+     */
+    private Long tagId;
+
+    /**
+     * 创建时间
+     */
+    private Date createTime;
+
+    @TableField(exist = false)
+    private static final long serialVersionUID = 1L;
+}
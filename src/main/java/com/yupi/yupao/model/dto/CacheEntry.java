@@ -0,0 +1,35 @@
+package com.yupi.yupao.model.dto;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 二级缓存中的值及其过期时间
+ * 软过期之后、硬过期之前仍可返回（同时后台刷新），硬过期之后视为不存在
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+@Data
+public class CacheEntry implements Serializable {
+
+    private Object value;
+
+    /**
+     * 软过期时间戳（毫秒）
+     */
+    private long softExpireTime;
+
+    /**
+     * 硬过期时间戳（毫秒），与 Redis 中的过期时间一致
+     */
+    private long hardExpireTime;
+
+    /**
+     * 加载耗时（毫秒），加载越慢越要提前刷新
+     */
+    private long loadMillis;
+
+    private static final long serialVersionUID = 1L;
+}
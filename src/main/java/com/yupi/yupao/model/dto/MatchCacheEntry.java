@@ -0,0 +1,37 @@
+package com.yupi.yupao.model.dto;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 用户匹配结果缓存
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+@Data
+public class MatchCacheEntry implements Serializable {
+
+    /**
+     * 计算时的全局标签版本，批量导入后版本变化，旧缓存全部失效
+     */
+    private long epoch;
+
+    /**
+     * 计算时的标签变更序号，之后变更过标签的用户需要逐个校验
+     */
+    private long seq;
+
+    /**
+     * 匹配到的用户 id（按距离由小到大）
+     */
+    private long[] userIds;
+
+    /**
+     * 与 userIds 一一对应的编辑距离
+     */
+    private int[] distances;
+
+    private static final long serialVersionUID = 1L;
+}
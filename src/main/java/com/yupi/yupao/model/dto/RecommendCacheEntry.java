@@ -0,0 +1,27 @@
+package com.yupi.yupao.model.dto;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 推荐用户缓存，与分页参数无关，每页从 userIds 中截取后按 id 批量查询
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+@Data
+public class RecommendCacheEntry implements Serializable {
+
+    /**
+     * 推荐的用户 id（按推荐顺序），最多缓存 recommendMaxSize 个
+     */
+    private long[] userIds;
+
+    /**
+     * 推荐用户总数，大于 userIds 的长度时超出部分查数据库
+     */
+    private long total;
+
+    private static final long serialVersionUID = 1L;
+}
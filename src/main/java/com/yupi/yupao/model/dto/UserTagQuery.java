@@ -0,0 +1,21 @@
+package com.yupi.yupao.model.dto;
+
+import com.yupi.yupao.common.PageRequest;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * 用户标签表达式查询封装类
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+public class UserTagQuery extends PageRequest {
+
+    /**
+     * 标签布尔表达式，如 (Java OR Go) AND NOT 大一
+     */
+    private String expression;
+}
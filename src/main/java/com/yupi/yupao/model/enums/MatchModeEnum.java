@@ -0,0 +1,51 @@
+package com.yupi.yupao.model.enums;
+
+/**
+ * 用户匹配模式枚举
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+public enum MatchModeEnum {
+
+    EXACT(0, "精确匹配"),
+    APPROXIMATE(1, "近似匹配");
+
+    private int value;
+
+    private String text;
+
+    public static MatchModeEnum getEnumByValue(Integer value) {
+        if (value == null) {
+            return null;
+        }
+        MatchModeEnum[] values = MatchModeEnum.values();
+        for (MatchModeEnum matchModeEnum : values) {
+            if (matchModeEnum.getValue() == value) {
+                return matchModeEnum;
+            }
+        }
+        return null;
+    }
+
+    MatchModeEnum(int value, String text) {
+        this.value = value;
+        this.text = text;
+    }
+
+    public int getValue() {
+        return value;
+    }
+
+    public void setValue(int value) {
+        this.value = value;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+}
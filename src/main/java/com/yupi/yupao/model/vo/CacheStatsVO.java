@@ -0,0 +1,102 @@
+package com.yupi.yupao.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 二级缓存统计信息（本节点启动以来的累计值）
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+@Data
+public class CacheStatsVO implements Serializable {
+
+    /**
+     * 本地缓存当前条数（估算值）
+     */
+    private long localSize;
+
+    /**
+     * 本地缓存命中数
+     */
+    private long localHitCount;
+
+    /**
+     * 本地缓存未命中数
+     */
+    private long localMissCount;
+
+    /**
+     * 本地缓存因容量或过期被淘汰的条数
+     */
+    private long localEvictionCount;
+
+    /**
+     * 收到其他节点的失效通知后清除的本地缓存条数
+     */
+    private long localInvalidationCount;
+
+    /**
+     * Redis 命中数
+     */
+    private long remoteHitCount;
+
+    /**
+     * Redis 未命中数
+     */
+    private long remoteMissCount;
+
+    /**
+     * 写入（含覆盖）Redis 的次数
+     */
+    private long remoteWriteCount;
+
+    /**
+     * 主动从 Redis 删除的条数（到期自动删除的不在其中）
+     */
+    private long remoteEvictionCount;
+
+    /**
+     * 访问 Redis 出错的次数
+     */
+    private long remoteErrorCount;
+
+    /**
+     * 未命中后实际执行加载的次数
+     */
+    private long loadCount;
+
+    /**
+     * 未命中后等待本节点其他线程加载结果的次数
+     */
+    private long localCoalescedCount;
+
+    /**
+     * 未命中后等到其他节点重建好缓存的次数
+     */
+    private long remoteCoalescedCount;
+
+    /**
+     * 软过期后返回旧值的次数
+     */
+    private long staleServeCount;
+
+    /**
+     * 软过期前触发提前刷新的次数
+     */
+    private long earlyRefreshCount;
+
+    /**
+     * 后台刷新实际执行加载的次数
+     */
+    private long refreshCount;
+
+    /**
+     * 后台刷新失败或被拒绝的次数
+     */
+    private long refreshErrorCount;
+
+    private static final long serialVersionUID = 1L;
+}
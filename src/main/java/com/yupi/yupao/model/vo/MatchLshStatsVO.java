@@ -0,0 +1,47 @@
+package com.yupi.yupao.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 近似匹配（MinHash LSH）统计信息
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+@Data
+public class MatchLshStatsVO implements Serializable {
+
+    /**
+     * band 数
+     */
+    private int bands;
+
+    /**
+     * 每个 band 的行数
+     */
+    private int rows;
+
+    /**
+     * 近似匹配请求数
+     */
+    private long requestCount;
+
+    /**
+     * 与精确匹配对比过的抽样请求数
+     */
+    private long sampleCount;
+
+    /**
+     * 抽样请求的平均召回率（近似结果与精确结果的交集 / 精确结果数）
+     */
+    private double averageRecall;
+
+    /**
+     * 抽样请求中 LSH 候选数 / 倒排索引候选数 的平均值
+     */
+    private double averageCandidateRatio;
+
+    private static final long serialVersionUID = 1L;
+}
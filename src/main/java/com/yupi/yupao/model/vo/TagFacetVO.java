@@ -0,0 +1,55 @@
+package com.yupi.yupao.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 标签统计（每个标签的用户数、标签同时出现的用户数）
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+@Data
+public class TagFacetVO implements Serializable {
+
+    /**
+     * 用户数最多的标签
+     */
+    private List<TagCount> tagCountList;
+
+    /**
+     * 同时出现最多的标签对
+     */
+    private List<TagPairCount> tagPairCountList;
+
+    /**
+     * 上次与数据库校对的时间（毫秒），未校对过为 0
+     */
+    private long reconcileTime;
+
+    private static final long serialVersionUID = 1L;
+
+    @Data
+    public static class TagCount implements Serializable {
+
+        private String tagName;
+
+        private int userCount;
+
+        private static final long serialVersionUID = 1L;
+    }
+
+    @Data
+    public static class TagPairCount implements Serializable {
+
+        private String tagName1;
+
+        private String tagName2;
+
+        private int userCount;
+
+        private static final long serialVersionUID = 1L;
+    }
+}
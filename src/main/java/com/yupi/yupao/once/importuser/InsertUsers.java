@@ -1,7 +1,10 @@
 package com.yupi.yupao.once.importuser;
 
+import com.yupi.yupao.manager.MatchCacheManager;
+import com.yupi.yupao.manager.UserTagIndexManager;
 import com.yupi.yupao.mapper.UserMapper;
 import com.yupi.yupao.model.domain.User;
+import com.yupi.yupao.service.TagService;
 import com.yupi.yupao.service.UserService;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StopWatch;
@@ -26,6 +29,15 @@ public class InsertUsers {
     @Resource
     private UserService userService;
 
+    @Resource
+    private UserTagIndexManager userTagIndexManager;
+
+    @Resource
+    private MatchCacheManager matchCacheManager;
+
+    @Resource
+    private TagService tagService;
+
     private ExecutorService executorService = new ThreadPoolExecutor(4, 8, 10000, TimeUnit.MINUTES, new ArrayBlockingQueue<>(5));
 
     /**
@@ -37,6 +49,7 @@ public class InsertUsers {
         System.out.println("goodgoodgood");
         stopWatch.start();
         final int INSERT_NUM = 1000;
+        List<User> userList = new ArrayList<>();
         for (int i = 0; i < INSERT_NUM; i++) {
             User user = new User();
             user.setUsername("假鱼皮");
@@ -51,7 +64,12 @@ public class InsertUsers {
             user.setUserRole(0);
             user.setPlanetCode("11111111");
             userMapper.insert(user);
+            userTagIndexManager.updateUserTags(user.getId(), user.getTags());
+            userList.add(user);
         }
+        tagService.appendUserTags(userList);
+        // 批量导入后旧的匹配缓存全部失效
+        matchCacheManager.bumpEpoch();
         stopWatch.stop();
         System.out.println(stopWatch.getTotalTimeMillis());
     }
@@ -90,10 +108,16 @@ public class InsertUsers {
             CompletableFuture<Void> future = CompletableFuture.runAsync(() ->{
                 System.out.println("threadName:" + Thread.currentThread().getName());
                 userService.saveBatch(userList, bachSize);
+                tagService.appendUserTags(userList);
+                for (User savedUser : userList) {
+                    userTagIndexManager.updateUserTags(savedUser.getId(), savedUser.getTags());
+                }
             }, executorService);
             futureList.add(future);
         }
         CompletableFuture.allOf(futureList.toArray(new CompletableFuture[]{})).join();
+        // 批量导入后旧的匹配缓存全部失效
+        matchCacheManager.bumpEpoch();
         stopWatch.stop();
         System.out.println(stopWatch.getTotalTimeMillis());
     }
@@ -0,0 +1,55 @@
+package com.yupi.yupao.once.usertag;
+
+import com.yupi.yupao.mapper.UserMapper;
+import com.yupi.yupao.model.domain.User;
+import com.yupi.yupao.service.TagService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StopWatch;
+
+import javax.annotation.Resource;
+import java.util.List;
+
+/**
+ * 回填 user_tag 关系表（上线 user_tag 搜索前执行一次，可重复执行）
+ * 按用户整体覆盖，标签已被清空或已删除的用户的旧关系也会删除
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+@Component
+@Slf4j
+public class BackfillUserTags {
+
+    private static final int BATCH_SIZE = 1000;
+
+    @Resource
+    private UserMapper userMapper;
+
+    @Resource
+    private TagService tagService;
+
+    /**
+     * 按 id 顺序分批读取用户的 tags（包含没有标签和已删除的用户）并覆盖关系表
+     */
+//    @Scheduled(initialDelay = 5000, fixedRate = Long.MAX_VALUE)
+    public void doBackfillUserTags() {
+        StopWatch stopWatch = new StopWatch();
+        stopWatch.start();
+        long lastId = 0;
+        long total = 0;
+        while (true) {
+            // 按主键游标分页，避免 limit offset 越翻越慢
+            List<User> userList = userMapper.listUserTagsAfterId(lastId, BATCH_SIZE);
+            if (userList.isEmpty()) {
+                break;
+            }
+            tagService.replaceUserTags(userList);
+            lastId = userList.get(userList.size() - 1).getId();
+            total += userList.size();
+            log.info("backfill user tags, users: {}, lastId: {}", total, lastId);
+        }
+        stopWatch.stop();
+        log.info("backfill user tags finished, users: {}, cost: {} ms", total, stopWatch.getTotalTimeMillis());
+    }
+}
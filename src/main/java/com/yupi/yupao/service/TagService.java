@@ -0,0 +1,57 @@
+package com.yupi.yupao.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.yupi.yupao.model.domain.Tag;
+import com.yupi.yupao.model.domain.User;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 标签服务
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+public interface TagService extends IService<Tag> {
+
+    /**
+     * 获取已存在的标签 id
+     *
+     * @param tagNames
+     * @return 标签名 => 标签 id（标签名不区分大小写），不存在的标签不包含在内
+     */
+    Map<String, Long> getTagIds(Collection<String> tagNames);
+
+    /**
+     * 获取标签 id，不存在的标签自动创建
+     *
+     * @param tagNames
+     * @param userId   新标签的创建者
+     * @return 标签名 => 标签 id（标签名不区分大小写，与数据库的唯一索引一致）
+     */
+    Map<String, Long> getOrCreateTagIds(Collection<String> tagNames, Long userId);
+
+    /**
+     * 将用户的标签 json 同步到 user_tag 表和 Redis 标签索引（各自开启时才写入）
+     *
+     * @param userId
+     * @param tags   标签 json 列表，为空时删除该用户的全部关系
+     */
+    void syncUserTags(long userId, String tags);
+
+    /**
+     * 批量追加新用户的标签关系（导入时使用，只插入不删除，各自开启时才写入）
+     *
+     * @param userList 需要包含 id 和 tags
+     */
+    void appendUserTags(List<User> userList);
+
+    /**
+     * 批量覆盖用户的标签关系（回填时使用，先删除这些用户的全部关系再插入，不受开关限制）
+     *
+     * @param userList 需要包含 id、tags 和 isDelete，已删除的用户按无标签处理
+     */
+    void replaceUserTags(List<User> userList);
+}
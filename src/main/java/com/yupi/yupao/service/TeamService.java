@@ -1,6 +1,7 @@
 package com.yupi.yupao.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.yupi.yupao.common.CursorPage;
 import com.yupi.yupao.model.domain.Team;
 import com.yupi.yupao.model.domain.User;
 import com.yupi.yupao.model.dto.TeamQuery;
@@ -36,6 +37,13 @@ public interface TeamService extends IService<Team> {
      */
     List<TeamUserVO> lists(TeamQuery teamQuery, boolean isAdmin);
 
+    /**
+     * 按游标分页查询队伍（按 id 升序，id > 游标 seek）
+     * @param teamQuery 查询条件，cursor 为上一页返回的 nextCursor
+     * @return
+     */
+    CursorPage<Team> listTeamsByCursor(TeamQuery teamQuery);
+
     /**
      * 修改队伍
      * @param teamUpdateRequest
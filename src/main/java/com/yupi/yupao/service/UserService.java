@@ -1,9 +1,14 @@
 package com.yupi.yupao.service;
 
 import com.yupi.yupao.common.BaseResponse;
+import com.yupi.yupao.common.CursorPage;
 import com.yupi.yupao.model.domain.User;
+import com.yupi.yupao.model.dto.RecommendCacheEntry;
+import com.yupi.yupao.model.enums.MatchModeEnum;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.yupi.yupao.model.vo.UserVO;
+import com.yupi.yupao.utils.TopKCollector;
 
 import javax.servlet.http.HttpServletRequest;
 import java.util.List;
@@ -61,6 +66,42 @@ public interface UserService extends IService<User> {
      */
     List<User> searchUsersByTags(List<String> tagNameList);
 
+    /**
+     * 根据标签布尔表达式搜索用户，如 (Java OR Go) AND NOT 大一
+     *
+     * @param expression
+     * @param pageNum
+     * @param pageSize
+     * @return 按用户 id 升序分页的脱敏用户
+     */
+    Page<User> searchUsersByTagExpression(String expression, long pageNum, long pageSize);
+
+    /**
+     * 分页获取推荐用户（推荐结果与用户无关，缓存一份共享的 id 列表，每页截取后批量查询）
+     *
+     * @param pageNum
+     * @param pageSize 超过单页上限时不走缓存，直接查数据库
+     * @return 脱敏用户
+     */
+    Page<User> recommendUsers(long pageNum, long pageSize);
+
+    /**
+     * 按游标获取推荐用户（推荐列表按 id 升序，游标为上一页最后一个用户的 id）
+     *
+     * @param cursor      为空表示第一页
+     * @param pageSize
+     * @param searchCount 是否返回总数
+     * @return 脱敏用户
+     */
+    CursorPage<User> recommendUsersByCursor(String cursor, long pageSize, boolean searchCount);
+
+    /**
+     * 查询推荐的用户 id 列表（不写缓存，用于预热）
+     *
+     * @return 推荐结果
+     */
+    RecommendCacheEntry loadRecommendUsers();
+
     /**
      * 更新用户信息
      * @param user
@@ -92,10 +133,33 @@ public interface UserService extends IService<User> {
 
 
     /**
-     * 根据标签匹配用户
+     * 根据标签匹配用户（使用默认匹配模式）
      * @param num
      * @param loginUser
      * @return
      */
     List<User> matchUsers(long num, User loginUser);
+
+    /**
+     * 根据标签匹配用户
+     * @param num
+     * @param mode 匹配模式，为 null 时精确匹配
+     * @param loginUser
+     * @return
+     */
+    List<User> matchUsers(long num, MatchModeEnum mode, User loginUser);
+
+    /**
+     * 根据用户名模糊搜索用户（流式查询）
+     * @param username 为空时查询全部
+     * @return 脱敏后的用户
+     */
+    List<User> searchUsersByUsername(String username);
+
+    /**
+     * 精确计算与用户标签距离最小的 MATCH_MAX_NUM 个用户（用于预计算）
+     * @param userId
+     * @return 索引未就绪或用户没有标签时返回 null
+     */
+    TopKCollector matchTopK(long userId);
 }
@@ -0,0 +1,194 @@
+package com.yupi.yupao.service.impl;
+
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.yupi.yupao.config.TagConfig;
+import com.yupi.yupao.manager.TagRedisIndexManager;
+import com.yupi.yupao.manager.UserTagIndexManager;
+import com.yupi.yupao.mapper.TagMapper;
+import com.yupi.yupao.mapper.UserTagMapper;
+import com.yupi.yupao.model.domain.Tag;
+import com.yupi.yupao.model.domain.User;
+import com.yupi.yupao.model.domain.UserTag;
+import com.yupi.yupao.service.TagService;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.Resource;
+import java.util.*;
+
+/**
+ * 标签服务实现类
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+@Service
+public class TagServiceImpl extends ServiceImpl<TagMapper, Tag>
+        implements TagService {
+
+    /**
+     * 批量插入时每条 SQL 的最大行数
+     */
+    private static final int INSERT_BATCH_SIZE = 1000;
+
+    @Resource
+    private TagMapper tagMapper;
+
+    @Resource
+    private UserTagMapper userTagMapper;
+
+    @Resource
+    private TagRedisIndexManager tagRedisIndexManager;
+
+    @Resource
+    private TagConfig tagConfig;
+
+    @Override
+    public Map<String, Long> getTagIds(Collection<String> tagNames) {
+        // 数据库默认排序规则不区分大小写，Java 和 java 是同一个标签
+        Map<String, Long> tagIdMap = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        if (tagNames.isEmpty()) {
+            return tagIdMap;
+        }
+        for (Tag tag : tagMapper.listByTagNames(tagNames)) {
+            tagIdMap.put(tag.getTagName(), tag.getId());
+        }
+        return tagIdMap;
+    }
+
+    @Override
+    public Map<String, Long> getOrCreateTagIds(Collection<String> tagNames, Long userId) {
+        Map<String, Long> tagIdMap = getTagIds(tagNames);
+        if (tagNames.isEmpty()) {
+            return tagIdMap;
+        }
+        Set<String> newTagNameSet = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        for (String tagName : tagNames) {
+            if (!tagIdMap.containsKey(tagName)) {
+                newTagNameSet.add(tagName);
+            }
+        }
+        if (newTagNameSet.isEmpty()) {
+            return tagIdMap;
+        }
+        List<Tag> newTagList = new ArrayList<>();
+        for (String tagName : newTagNameSet) {
+            Tag tag = new Tag();
+            tag.setTagName(tagName);
+            tag.setUserId(userId);
+            tag.setIsParent(0);
+            newTagList.add(tag);
+        }
+        // 并发创建同名标签时以先插入的为准，插入后重新查询 id
+        for (int from = 0; from < newTagList.size(); from += INSERT_BATCH_SIZE) {
+            tagMapper.insertIgnoreBatch(newTagList.subList(from, Math.min(from + INSERT_BATCH_SIZE, newTagList.size())));
+        }
+        for (Tag tag : tagMapper.listByTagNames(newTagNameSet)) {
+            tagIdMap.put(tag.getTagName(), tag.getId());
+        }
+        return tagIdMap;
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void syncUserTags(long userId, String tags) {
+        boolean userTagSyncEnabled = tagConfig.isUserTagSyncEnabled();
+        // 都未开启时不写 tag、user_tag 表，更新用户不增加额外的写入和行锁
+        if (!userTagSyncEnabled && !tagRedisIndexManager.isEnabled()) {
+            return;
+        }
+        List<String> tagNameList = UserTagIndexManager.parseTags(tags);
+        Collection<Long> tagIds = getOrCreateTagIds(tagNameList, userId).values();
+        tagRedisIndexManager.setUserTags(userId, tagIds);
+        if (!userTagSyncEnabled) {
+            return;
+        }
+        userTagMapper.deleteByUserIdExcludeTagIds(userId, tagIds);
+        if (tagIds.isEmpty()) {
+            return;
+        }
+        List<UserTag> userTagList = new ArrayList<>();
+        for (Long tagId : new HashSet<>(tagIds)) {
+            UserTag userTag = new UserTag();
+            userTag.setUserId(userId);
+            userTag.setTagId(tagId);
+            userTagList.add(userTag);
+        }
+        userTagMapper.insertIgnoreBatch(userTagList);
+    }
+
+    @Override
+    public void appendUserTags(List<User> userList) {
+        boolean userTagSyncEnabled = tagConfig.isUserTagSyncEnabled();
+        if (!userTagSyncEnabled && !tagRedisIndexManager.isEnabled()) {
+            return;
+        }
+        Map<Long, Set<Long>> userTagIdMap = getUserTagIdMap(userList);
+        userTagIdMap.values().removeIf(Set::isEmpty);
+        if (userTagIdMap.isEmpty()) {
+            return;
+        }
+        if (userTagSyncEnabled) {
+            insertUserTags(userTagIdMap);
+        }
+        tagRedisIndexManager.setUserTags(userTagIdMap);
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void replaceUserTags(List<User> userList) {
+        if (userList.isEmpty()) {
+            return;
+        }
+        Map<Long, Set<Long>> userTagIdMap = getUserTagIdMap(userList);
+        // 标签已被清空的用户也要删除旧关系，只追加会留下过期的行
+        userTagMapper.deleteByUserIds(userTagIdMap.keySet());
+        insertUserTags(userTagIdMap);
+        tagRedisIndexManager.setUserTags(userTagIdMap);
+    }
+
+    /**
+     * 解析用户标签并转换为 tag 表 id
+     *
+     * @param userList 已删除的用户按无标签处理
+     * @return 用户 id => 标签 id（没有标签的用户为空集合）
+     */
+    private Map<Long, Set<Long>> getUserTagIdMap(List<User> userList) {
+        Map<Long, List<String>> userTagNameMap = new HashMap<>();
+        Set<String> tagNameSet = new HashSet<>();
+        for (User user : userList) {
+            List<String> tagNameList = Integer.valueOf(1).equals(user.getIsDelete())
+                    ? Collections.emptyList() : UserTagIndexManager.parseTags(user.getTags());
+            userTagNameMap.put(user.getId(), tagNameList);
+            tagNameSet.addAll(tagNameList);
+        }
+        Map<String, Long> tagIdMap = getOrCreateTagIds(tagNameSet, null);
+        Map<Long, Set<Long>> userTagIdMap = new HashMap<>();
+        for (Map.Entry<Long, List<String>> entry : userTagNameMap.entrySet()) {
+            Set<Long> tagIdSet = new HashSet<>();
+            for (String tagName : entry.getValue()) {
+                Long tagId = tagIdMap.get(tagName);
+                if (tagId != null) {
+                    tagIdSet.add(tagId);
+                }
+            }
+            userTagIdMap.put(entry.getKey(), tagIdSet);
+        }
+        return userTagIdMap;
+    }
+
+    private void insertUserTags(Map<Long, Set<Long>> userTagIdMap) {
+        List<UserTag> userTagList = new ArrayList<>();
+        for (Map.Entry<Long, Set<Long>> entry : userTagIdMap.entrySet()) {
+            for (Long tagId : entry.getValue()) {
+                UserTag userTag = new UserTag();
+                userTag.setUserId(entry.getKey());
+                userTag.setTagId(tagId);
+                userTagList.add(userTag);
+            }
+        }
+        for (int from = 0; from < userTagList.size(); from += INSERT_BATCH_SIZE) {
+            userTagMapper.insertIgnoreBatch(userTagList.subList(from, Math.min(from + INSERT_BATCH_SIZE, userTagList.size())));
+        }
+    }
+}
@@ -4,7 +4,9 @@ import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.github.xiaoymin.knife4j.core.util.StrUtil;
+import com.yupi.yupao.common.CursorPage;
 import com.yupi.yupao.common.ErrorCode;
+import com.yupi.yupao.constant.UserConstant;
 import com.yupi.yupao.exception.BusinessException;
 import com.yupi.yupao.model.domain.User;
 import com.yupi.yupao.model.domain.UserTeam;
@@ -210,6 +212,37 @@ public class TeamServiceImpl extends ServiceImpl<TeamMapper, Team>
 
     }
 
+    @Override
+    public CursorPage<Team> listTeamsByCursor(TeamQuery teamQuery) {
+        if (teamQuery == null) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR);
+        }
+        int pageSize = teamQuery.getPageSize();
+        if (pageSize <= 0 || pageSize > UserConstant.SEARCH_MAX_PAGE_SIZE) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR);
+        }
+        long lastId = CursorPage.decodeCursor(teamQuery.getCursor());
+        // 与分页查询的条件一致：非空字段作为等值条件
+        Team team = new Team();
+        BeanUtils.copyProperties(teamQuery, team);
+        CursorPage<Team> teamPage = new CursorPage<>();
+        if (teamQuery.isSearchCount()) {
+            teamPage.setTotal(this.count(new QueryWrapper<>(team)));
+        }
+        // 按主键 seek，多查一条判断是否还有下一页
+        QueryWrapper<Team> queryWrapper = new QueryWrapper<>(team);
+        queryWrapper.gt("id", lastId);
+        queryWrapper.orderByAsc("id");
+        queryWrapper.last("limit " + (pageSize + 1));
+        List<Team> teamList = this.list(queryWrapper);
+        if (teamList.size() > pageSize) {
+            teamList = new ArrayList<>(teamList.subList(0, pageSize));
+            teamPage.setNextCursor(CursorPage.encodeCursor(teamList.get(pageSize - 1).getId()));
+        }
+        teamPage.setRecords(teamList);
+        return teamPage;
+    }
+
     @Override
     public boolean updateTeam(TeamUpdateRequest teamUpdateRequest, User loginUser) {
         // 判断请求参数是否为空
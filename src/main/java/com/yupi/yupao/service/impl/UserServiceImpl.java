@@ -1,27 +1,48 @@
 package com.yupi.yupao.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
-import com.google.gson.Gson;
 import com.google.gson.TypeAdapter;
-import com.google.gson.reflect.TypeToken;
+import com.yupi.yupao.common.CursorPage;
 import com.yupi.yupao.common.ErrorCode;
+import com.yupi.yupao.config.CacheConfig;
+import com.yupi.yupao.config.MatchConfig;
+import com.yupi.yupao.config.TagConfig;
 import com.yupi.yupao.constant.UserConstant;
 import com.yupi.yupao.exception.BusinessException;
+import com.yupi.yupao.manager.MatchCacheManager;
+import com.yupi.yupao.manager.MatchLshManager;
+import com.yupi.yupao.manager.MatchScoringManager;
+import com.yupi.yupao.manager.TagBitmapIndexManager;
+import com.yupi.yupao.manager.TagHierarchyManager;
+import com.yupi.yupao.manager.TagRedisIndexManager;
+import com.yupi.yupao.manager.TagSuggestManager;
+import com.yupi.yupao.manager.TwoLevelCacheManager;
+import com.yupi.yupao.manager.UserTagIndexManager;
 import com.yupi.yupao.model.domain.User;
+import com.yupi.yupao.model.dto.RecommendCacheEntry;
+import com.yupi.yupao.model.enums.MatchModeEnum;
 import com.yupi.yupao.model.vo.UserVO;
+import com.yupi.yupao.service.TagService;
 import com.yupi.yupao.service.UserService;
 import com.yupi.yupao.mapper.UserMapper;
+import com.yupi.yupao.mapper.UserTagMapper;
 import com.yupi.yupao.utils.AlgorithmUtils;
+import com.yupi.yupao.utils.TagExpression;
+import com.yupi.yupao.utils.TopKCollector;
+import com.yupi.yupao.utils.TransactionUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.math3.util.Pair;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.DigestUtils;
 
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
+import java.io.Serializable;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -44,6 +65,51 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
     @Resource
     private UserMapper userMapper;
 
+    @Resource
+    private UserTagIndexManager userTagIndexManager;
+
+    @Resource
+    private MatchScoringManager matchScoringManager;
+
+    @Resource
+    private MatchLshManager matchLshManager;
+
+    @Resource
+    private MatchCacheManager matchCacheManager;
+
+    @Resource
+    private TagHierarchyManager tagHierarchyManager;
+
+    @Resource
+    private TagBitmapIndexManager tagBitmapIndexManager;
+
+    @Resource
+    private TagRedisIndexManager tagRedisIndexManager;
+
+    @Resource
+    private TagSuggestManager tagSuggestManager;
+
+    @Resource
+    private MatchConfig matchConfig;
+
+    @Resource
+    private TagConfig tagConfig;
+
+    @Resource
+    private CacheConfig cacheConfig;
+
+    @Resource
+    private TwoLevelCacheManager twoLevelCacheManager;
+
+    @Resource
+    private TagService tagService;
+
+    @Resource
+    private UserTagMapper userTagMapper;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
     /**
      * 盐值，混淆密码
      */
@@ -99,6 +165,7 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
         if (!saveResult) {
             return -1;
         }
+        userTagIndexManager.updateUserTags(user.getId(), user.getTags());
         return user.getId();
     }
 
@@ -138,6 +205,12 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
         User safetyUser = getSafetyUser(user);
         // 4. 记录用户的登录态
         request.getSession().setAttribute(USER_LOGIN_STATE, safetyUser);
+        // 5. 记录为活跃用户，每日预计算匹配结果
+        try {
+            stringRedisTemplate.opsForZSet().add(UserConstant.USER_ACTIVE_KEY, String.valueOf(user.getId()), System.currentTimeMillis());
+        } catch (Exception e) {
+            log.error("redis record active user error", e);
+        }
         return safetyUser;
     }
 
@@ -181,7 +254,7 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
     }
 
     /**
-     * 根据标签搜索用户（内存过滤）
+     * 根据标签搜索用户（倒排索引）
      *
      * @param tagNameList 用户要拥有的标签
      * @return
@@ -191,27 +264,264 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
         if (CollectionUtils.isEmpty(tagNameList)) {
             throw new BusinessException(ErrorCode.PARAMS_ERROR);
         }
-        // 1、先查询所有用户信息
+        // 拼写错误的标签纠正为最接近的已知标签，避免直接返回空结果
+        tagNameList = tagSuggestManager.resolveTags(tagNameList);
+        // 多节点共享的 Redis 索引可用时在 Redis 上求交集，各节点结果一致
+        if (tagRedisIndexManager.isReady()) {
+            Set<Long> userIdSet = searchUserIdsByRedisIndex(tagNameList);
+            if (userIdSet != null) {
+                return listSafetyUsersByIds(userIdSet);
+            }
+        }
+        // 本地索引可用时直接求标签倒排列表的交集，只查询命中的用户
+        if (userTagIndexManager.isReady()) {
+            return listSafetyUsersByIds(userTagIndexManager.getUserIdsHavingAllTags(tagNameList));
+        }
+        // 索引未就绪时优先走 user_tag 表的索引查询，避免全表扫描
+        if (tagConfig.isUserTagSyncEnabled() && tagConfig.isUserTagSearchEnabled()) {
+            return searchUsersByUserTagTable(tagNameList);
+        }
+        return searchUsersByTagsByScan(tagNameList);
+    }
+
+    /**
+     * 在 Redis 标签索引上求拥有全部标签的用户 id
+     *
+     * @param tagNameList
+     * @return Redis 异常时返回 null
+     */
+    private Set<Long> searchUserIdsByRedisIndex(List<String> tagNameList) {
+        Set<String> tagNameSet = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        tagNameSet.addAll(tagNameList);
+        Map<String, Long> tagIdMap = tagService.getTagIds(tagNameSet);
+        // 有不存在的标签时交集一定为空
+        if (tagIdMap.size() < tagNameSet.size()) {
+            return new HashSet<>();
+        }
+        return tagRedisIndexManager.getUserIdsHavingAllTags(tagIdMap.values());
+    }
+
+    private List<User> listSafetyUsersByIds(Set<Long> userIdSet) {
+        if (userIdSet.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return this.listByIds(userIdSet).stream().map(this::getSafetyUser).collect(Collectors.toList());
+    }
+
+    /**
+     * 根据标签搜索用户（user_tag 关系表，按 tagId 索引分组计数）
+     *
+     * @param tagNameList 用户要拥有的标签
+     * @return
+     */
+    private List<User> searchUsersByUserTagTable(List<String> tagNameList) {
+        // 标签名不区分大小写，去重后 having count(*) 才能与标签数对应
+        Set<String> tagNameSet = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        tagNameSet.addAll(tagNameList);
+        return userTagMapper.listUsersHavingAllTags(tagNameSet).stream().map(this::getSafetyUser).collect(Collectors.toList());
+    }
+
+    /**
+     * 根据标签搜索用户（全表内存过滤，索引未就绪时使用）
+     *
+     * @param tagNameList 用户要拥有的标签
+     * @return
+     */
+    private List<User> searchUsersByTagsByScan(List<String> tagNameList) {
+        // 1、流式查询有标签的用户，逐行过滤，只保留符合要求的数据
+        QueryWrapper<User> queryWrapper = new QueryWrapper<>();
+        queryWrapper.isNotNull("tags");
+        List<User> finalUserList = new ArrayList<>();
+        userMapper.scanUsers(queryWrapper, resultContext -> {
+            User user = resultContext.getResultObject();
+            // 2、在内存中筛选出符合要求的数据（不区分大小写，与索引一致）
+            if (UserTagIndexManager.hasAllTags(UserTagIndexManager.parseTags(user.getTags()), tagNameList)) {
+                finalUserList.add(getSafetyUser(user));
+            }
+        });
+        return finalUserList;
+    }
+
+    @Override
+    public Page<User> searchUsersByTagExpression(String expression, long pageNum, long pageSize) {
+        if (pageNum <= 0 || pageSize <= 0) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR);
+        }
+        TagExpression tagExpression;
+        try {
+            tagExpression = TagExpression.parse(expression);
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, e.getMessage());
+        }
+        if (!tagBitmapIndexManager.isReady()) {
+            return searchUsersByTagExpressionByScan(tagExpression, pageNum, pageSize);
+        }
+        // 位图求值得到当前页的用户 id，再按 id 批量查询
+        Page<Long> userIdPage = tagBitmapIndexManager.searchUserIds(tagExpression, pageNum, pageSize);
+        Page<User> userPage = new Page<>(pageNum, pageSize, userIdPage.getTotal());
+        List<Long> userIdList = userIdPage.getRecords();
+        if (userIdList.isEmpty()) {
+            return userPage;
+        }
+        Map<Long, User> userMap = this.listByIds(userIdList).stream()
+                .collect(Collectors.toMap(User::getId, this::getSafetyUser));
+        // 批量查询不保证顺序，按 id 列表重新排序，已删除的用户直接跳过
+        List<User> userList = new ArrayList<>(userIdList.size());
+        for (Long userId : userIdList) {
+            User user = userMap.get(userId);
+            if (user != null) {
+                userList.add(user);
+            }
+        }
+        userPage.setRecords(userList);
+        return userPage;
+    }
+
+    /**
+     * 根据标签布尔表达式搜索用户（全表流式扫描，位图索引不可用时使用）
+     *
+     * @param tagExpression
+     * @param pageNum
+     * @param pageSize
+     * @return
+     */
+    private Page<User> searchUsersByTagExpressionByScan(TagExpression tagExpression, long pageNum, long pageSize) {
         QueryWrapper<User> queryWrapper = new QueryWrapper<>();
-        List<User> userList = userMapper.selectList(queryWrapper);
-        Gson gson = new Gson();
-        // 2、在内存中筛选出符合要求的数据
-        return userList.stream().filter(user -> {
-            String tagStr = user.getTags();
-            Set<String> userTags = gson.fromJson(tagStr, new TypeToken<Set<String>>() {
-            }.getType());
-            // java8新特性
-            userTags = Optional.ofNullable(userTags).orElse(new HashSet<>());
-            for (String tagName : tagNameList) {
-                if (!userTags.contains(tagName)) {
-                    return false;
-                }
+        queryWrapper.isNotNull("tags");
+        queryWrapper.orderByAsc("id");
+        long offset = (pageNum - 1) * pageSize;
+        long[] total = new long[1];
+        List<User> userList = new ArrayList<>();
+        userMapper.scanUsers(queryWrapper, resultContext -> {
+            User user = resultContext.getResultObject();
+            List<String> tagList = UserTagIndexManager.parseTags(user.getTags());
+            // 与位图索引一致，没有标签的用户不参与搜索
+            if (tagList.isEmpty() || !tagExpression.test(tagList)) {
+                return;
+            }
+            if (total[0] >= offset && userList.size() < pageSize) {
+                userList.add(getSafetyUser(user));
             }
-            return true;
-        }).map(this::getSafetyUser).collect(Collectors.toList());
+            total[0]++;
+        });
+        Page<User> userPage = new Page<>(pageNum, pageSize, total[0]);
+        userPage.setRecords(userList);
+        return userPage;
+    }
+
+    @Override
+    public Page<User> recommendUsers(long pageNum, long pageSize) {
+        if (pageNum <= 0 || pageSize <= 0) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR);
+        }
+        // 超过单页上限的请求保持原来的行为，不走缓存直接查数据库
+        if (pageSize > UserConstant.SEARCH_MAX_PAGE_SIZE) {
+            return pageRecommendUsersFromDb(pageNum, pageSize);
+        }
+        RecommendCacheEntry entry = getRecommendCacheEntry();
+        long[] userIds = entry.getUserIds();
+        long offset = (pageNum - 1) * pageSize;
+        // 超出缓存范围的深分页直接查数据库
+        if (offset + pageSize > userIds.length && userIds.length < entry.getTotal()) {
+            return pageRecommendUsersFromDb(pageNum, pageSize);
+        }
+        // 截取当前页的 id，一次批量查询，已删除的用户直接跳过
+        int from = (int) Math.min(offset, userIds.length);
+        int to = (int) Math.min(offset + pageSize, userIds.length);
+        Page<User> userPage = new Page<>(pageNum, pageSize, entry.getTotal());
+        userPage.setRecords(listSafetyUsersInOrder(Arrays.copyOfRange(userIds, from, to)));
+        return userPage;
+    }
+
+    private Page<User> pageRecommendUsersFromDb(long pageNum, long pageSize) {
+        Page<User> userPage = this.page(new Page<>(pageNum, pageSize), new QueryWrapper<User>().orderByAsc("id"));
+        userPage.setRecords(userPage.getRecords().stream().map(this::getSafetyUser).collect(Collectors.toList()));
+        return userPage;
     }
 
     @Override
+    public CursorPage<User> recommendUsersByCursor(String cursor, long pageSize, boolean searchCount) {
+        if (pageSize <= 0 || pageSize > UserConstant.SEARCH_MAX_PAGE_SIZE) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR);
+        }
+        long lastId = CursorPage.decodeCursor(cursor);
+        RecommendCacheEntry entry = getRecommendCacheEntry();
+        long[] userIds = entry.getUserIds();
+        // 缓存的 id 升序，二分找到游标之后的第一个位置
+        int from = Arrays.binarySearch(userIds, lastId);
+        from = from >= 0 ? from + 1 : -from - 1;
+        CursorPage<User> userPage = new CursorPage<>();
+        userPage.setTotal(searchCount ? entry.getTotal() : null);
+        if (from + pageSize <= userIds.length || userIds.length >= entry.getTotal()) {
+            int to = (int) Math.min(from + pageSize, userIds.length);
+            userPage.setRecords(listSafetyUsersInOrder(Arrays.copyOfRange(userIds, from, to)));
+            if (to < userIds.length || userIds.length < entry.getTotal()) {
+                userPage.setNextCursor(CursorPage.encodeCursor(userIds[to - 1]));
+            }
+            return userPage;
+        }
+        // 超出缓存范围，按主键 seek，多查一条判断是否还有下一页
+        QueryWrapper<User> queryWrapper = new QueryWrapper<>();
+        queryWrapper.gt("id", lastId);
+        queryWrapper.orderByAsc("id");
+        queryWrapper.last("limit " + (pageSize + 1));
+        List<User> userList = this.list(queryWrapper);
+        if (userList.size() > pageSize) {
+            userList = userList.subList(0, (int) pageSize);
+            userPage.setNextCursor(CursorPage.encodeCursor(userList.get(userList.size() - 1).getId()));
+        }
+        userPage.setRecords(userList.stream().map(this::getSafetyUser).collect(Collectors.toList()));
+        return userPage;
+    }
+
+    /**
+     * 读取推荐 id 列表（所有用户共享），未命中时合并加载（并发请求只查一次数据库），软过期后先返回旧值再后台刷新
+     *
+     * @return
+     */
+    private RecommendCacheEntry getRecommendCacheEntry() {
+        return (RecommendCacheEntry) twoLevelCacheManager.getOrLoad(UserConstant.USER_RECOMMEND_KEY,
+                cacheConfig.getRecommendExpireMillis(), cacheConfig.getRecommendHardExpireMillis(),
+                this::loadRecommendUsers);
+    }
+
+    /**
+     * 查询推荐的用户 id（按 id 升序取前 recommendMaxSize 个）
+     *
+     * @return
+     */
+    @Override
+    public RecommendCacheEntry loadRecommendUsers() {
+        int maxSize = cacheConfig.getRecommendMaxSize();
+        QueryWrapper<User> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select("id");
+        // 游标翻页依赖 id 升序
+        queryWrapper.orderByAsc("id");
+        queryWrapper.last("limit " + maxSize);
+        long[] userIds = userMapper.selectObjs(queryWrapper).stream()
+                .mapToLong(id -> ((Number) id).longValue())
+                .toArray();
+        RecommendCacheEntry entry = new RecommendCacheEntry();
+        entry.setUserIds(userIds);
+        // 不足一个缓存容量时 id 列表就是全部用户，不用再 count
+        entry.setTotal(userIds.length < maxSize ? userIds.length : this.count());
+        return entry;
+    }
+
+    @Override
+    public List<User> searchUsersByUsername(String username) {
+        QueryWrapper<User> queryWrapper = new QueryWrapper<>();
+        if (StringUtils.isNotBlank(username)) {
+            queryWrapper.like("username", username);
+        }
+        // 流式查询，逐行脱敏，不同时持有完整的原始用户列表
+        List<User> finalUserList = new ArrayList<>();
+        userMapper.scanUsers(queryWrapper, resultContext -> finalUserList.add(getSafetyUser(resultContext.getResultObject())));
+        return finalUserList;
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
     public int updateUser(User user, User loginUser) {
         long userId = user.getId();
         if (userId <= 0) {
@@ -239,7 +549,32 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
         if (oldUser == null) {
             throw new BusinessException(ErrorCode.NULL_ERROR);
         }
-        return userMapper.updateById(user);
+        int result = userMapper.updateById(user);
+        // 标签有变化时同步更新倒排索引，并使相关的匹配缓存失效（事务提交后执行，回滚时不留下未提交的标签）
+        if (result > 0 && user.getTags() != null && !user.getTags().equals(oldUser.getTags())) {
+            tagService.syncUserTags(userId, user.getTags());
+            String tags = user.getTags();
+            TransactionUtils.runAfterCommit(() -> {
+                userTagIndexManager.updateUserTags(userId, tags);
+                matchCacheManager.onUserTagsChanged(userId);
+            });
+        }
+        return result;
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean removeById(Serializable id) {
+        boolean result = super.removeById(id);
+        if (result) {
+            long userId = Long.parseLong(id.toString());
+            tagService.syncUserTags(userId, null);
+            TransactionUtils.runAfterCommit(() -> {
+                userTagIndexManager.removeUser(userId);
+                matchCacheManager.onUserTagsChanged(userId);
+            });
+        }
+        return result;
     }
 
     @Override
@@ -288,47 +623,158 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
      */
     @Override
     public List<User> matchUsers(long num, User loginUser) {
+        return matchUsers(num, MatchModeEnum.getEnumByValue(matchConfig.getDefaultMode()), loginUser);
+    }
+
+    @Override
+    public List<User> matchUsers(long num, MatchModeEnum mode, User loginUser) {
+        // 索引构建完成前回退到全表扫描
+        if (!userTagIndexManager.isReady()) {
+            return matchUsersByScan(num, loginUser);
+        }
+        // 优先使用索引中的标签，session 中的登录信息可能是旧的
+        long loginUserId = loginUser.getId();
+        int[] indexedTagIds = userTagIndexManager.getUserTagIds(loginUserId);
+        int[] tagIds = indexedTagIds != null ? indexedTagIds : userTagIndexManager.encodeTags(loginUser.getTags());
+        MatchModeEnum matchMode = mode == null ? MatchModeEnum.EXACT : mode;
+        // 缓存中保存前 MATCH_MAX_NUM 个用户，按请求的 num 截取
+        long[] userIds = matchCacheManager.getOrCompute(loginUserId, matchMode, tagIds,
+                () -> matchTopK(tagIds, matchMode, loginUserId));
+        return listSafetyUsersInOrder(Arrays.copyOf(userIds, (int) Math.min(num, userIds.length)));
+    }
+
+    @Override
+    public TopKCollector matchTopK(long userId) {
+        if (!userTagIndexManager.isReady()) {
+            return null;
+        }
+        int[] tagIds = userTagIndexManager.getUserTagIds(userId);
+        if (tagIds == null) {
+            return null;
+        }
+        return matchUsersExactly(tagIds, UserConstant.MATCH_MAX_NUM, userId);
+    }
+
+    /**
+     * 计算距离最小的 MATCH_MAX_NUM 个用户
+     *
+     * @param tagIds
+     * @param mode
+     * @param loginUserId
+     * @return
+     */
+    private TopKCollector matchTopK(int[] tagIds, MatchModeEnum mode, long loginUserId) {
+        int k = UserConstant.MATCH_MAX_NUM;
+        TopKCollector topKCollector = null;
+        if (MatchModeEnum.APPROXIMATE.equals(mode) && matchLshManager.isEnabled()) {
+            topKCollector = matchUsersApproximately(tagIds, k, loginUserId);
+        }
+        // 近似匹配的候选不足 k 个时，仍然使用精确匹配
+        if (topKCollector == null || topKCollector.size() < k) {
+            topKCollector = matchUsersExactly(tagIds, k, loginUserId);
+        }
+        return topKCollector;
+    }
+
+    /**
+     * 精确匹配：对所有至少有一个相同标签的用户打分
+     *
+     * @param tagIds
+     * @param num
+     * @param loginUserId
+     * @return
+     */
+    private TopKCollector matchUsersExactly(int[] tagIds, int num, long loginUserId) {
+        // 开启标签层级时同时召回拥有相近标签的用户
+        Set<Long> candidateIdSet = userTagIndexManager.getCandidateUserIds(tagHierarchyManager.expand(tagIds));
+        candidateIdSet.remove(loginUserId);
+        return scoreCandidates(tagIds, candidateIdSet, num);
+    }
+
+    /**
+     * 近似匹配：只对 LSH 桶中碰撞的用户打分，并抽样与精确结果对比召回率
+     *
+     * @param tagIds
+     * @param num
+     * @param loginUserId
+     * @return
+     */
+    private TopKCollector matchUsersApproximately(int[] tagIds, int num, long loginUserId) {
+        Set<Long> candidateIdSet = matchLshManager.getCandidateUserIds(tagIds);
+        candidateIdSet.remove(loginUserId);
+        TopKCollector topKCollector = scoreCandidates(tagIds, candidateIdSet, num);
+        if (matchLshManager.shouldSample()) {
+            Set<Long> exactCandidateIdSet = userTagIndexManager.getCandidateUserIds(tagHierarchyManager.expand(tagIds));
+            exactCandidateIdSet.remove(loginUserId);
+            TopKCollector exactTopKCollector = scoreCandidates(tagIds, exactCandidateIdSet, num);
+            matchLshManager.recordSample(topKCollector, exactTopKCollector,
+                    candidateIdSet.size(), exactCandidateIdSet.size());
+        }
+        return topKCollector;
+    }
+
+    /**
+     * 分区并行打分，只保留距离最小的 num 个用户
+     */
+    private TopKCollector scoreCandidates(int[] tagIds, Set<Long> candidateIdSet, int num) {
+        long[] candidateIds = candidateIdSet.stream().mapToLong(Long::longValue).toArray();
+        return matchScoringManager.score(tagIds, candidateIds, userTagIndexManager::getUserTagIds,
+                tagHierarchyManager::distance, num);
+    }
+
+    /**
+     * 全表扫描匹配（索引未就绪时使用）
+     *
+     * @param num
+     * @param loginUser
+     * @return
+     */
+    private List<User> matchUsersByScan(long num, User loginUser) {
         // 数据量大的时候，不要循环输出大量的日志
         // 性能优化：过滤掉标签为空的用户，只查询需要的信息
-        // 得到所有用户
+        // 流式查询所有用户，逐行打分，内存中只保留 Top-K
         QueryWrapper<User> queryWrapper = new QueryWrapper<>();
         queryWrapper.select("id", "tags");
         queryWrapper.isNotNull("tags");
-        List<User> userList = this.list(queryWrapper);
-        Gson gson =new Gson();
-        String tags = loginUser.getTags();
         // 拿到登录用户的标签
-        List<String> tagList = gson.fromJson(tags, new TypeToken<List<String>>(){}.getType());
-        // 用户列表下标 === 相似度
-        SortedMap<Integer, Long> indexDistanceMap = new TreeMap<>();
-        // 新的数据结构，list --> 用户，相似度
-        List<Pair<User, Long>> list = new ArrayList<>();
-        for (int i = 0; i < userList.size(); i++) {
-            User user = userList.get(i);
+        List<String> tagList = UserTagIndexManager.parseTags(loginUser.getTags());
+        long loginUserId = loginUser.getId();
+        TopKCollector topKCollector = new TopKCollector((int) num);
+        userMapper.scanUsers(queryWrapper, resultContext -> {
+            User user = resultContext.getResultObject();
             // 过滤标签为空以及剔除自己
-            if (StringUtils.isBlank(user.getTags()) || user.getId() == loginUser.getId()){
-                continue;
+            if (StringUtils.isBlank(user.getTags()) || user.getId() == loginUserId) {
+                return;
             }
-            List<String> userTags = gson.fromJson(user.getTags(), new TypeToken<List<String>>() {
-            }.getType());
-            long distance = AlgorithmUtils.minDistance(tagList, userTags);
-            list.add(new Pair<>(user, distance));
-        }
-
-        List<Pair<User, Long>> topUserPairList = list.stream().
-                sorted((a, b) -> (int) (a.getValue() - b.getValue())).
-                limit(num).
-                collect(Collectors.toList());
-        // 原来的uerId顺序
-        List<Long> userIdList = topUserPairList.stream().map(pari -> pari.getKey().getId()).collect(Collectors.toList());
+            List<String> userTags = UserTagIndexManager.parseTags(user.getTags());
+            int distance = AlgorithmUtils.minDistance(tagList, userTags, topKCollector.threshold());
+            topKCollector.offer(user.getId(), distance);
+        });
+        return listSafetyUsersInOrder(topKCollector.getSortedIds());
+    }
+
+    /**
+     * 按给定的 id 顺序查询脱敏用户
+     *
+     * @param userIds
+     * @return
+     */
+    private List<User> listSafetyUsersInOrder(long[] userIds) {
+        if (userIds.length == 0) {
+            return new ArrayList<>();
+        }
+        List<Long> userIdList = Arrays.stream(userIds).boxed().collect(Collectors.toList());
         QueryWrapper<User> userQueryWrapper = new QueryWrapper<>();
-        queryWrapper.in("id", userIdList);
-        Map<Long, List<User>> unOrderUserList = this.list(queryWrapper).stream().
+        userQueryWrapper.in("id", userIdList);
+        Map<Long, List<User>> unOrderUserList = this.list(userQueryWrapper).stream().
                 map(user -> this.getSafetyUser(user)).
                 collect(Collectors.groupingBy(user -> user.getId()));
         List<User> finalUserList = new ArrayList<>();
         for (Long userId : userIdList) {
-            finalUserList.add(unOrderUserList.get(userId).get(0));
+            List<User> users = unOrderUserList.get(userId);
+            if (users != null) {
+                finalUserList.add(users.get(0));
+            }
         }
         return finalUserList;
     }
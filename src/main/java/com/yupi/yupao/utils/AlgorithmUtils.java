@@ -2,6 +2,7 @@ package com.yupi.yupao.utils;
 
 import java.util.List;
 import java.util.Objects;
+import java.util.function.IntBinaryOperator;
 
 /**
  * 算法工具类
@@ -11,6 +12,11 @@ import java.util.Objects;
  */
 public class AlgorithmUtils {
 
+    /**
+     * 两行滚动数组，线程内复用，避免每次比较都分配二维矩阵
+     */
+    private static final ThreadLocal<int[][]> ROW_BUFFER = ThreadLocal.withInitial(() -> new int[2][16]);
+
     /**
      * 编辑距离算法（用于计算最相似的两组标签）
      * 原理：https://blog.csdn.net/DBC_121/article/details/104198838
@@ -51,6 +57,207 @@ public class AlgorithmUtils {
     }
 
 
+    /**
+     * 编辑距离算法（用于计算最相似的两组标签，标签已编码为 {@link TagDictionary} 中的 id）
+     * 原理：https://blog.csdn.net/DBC_121/article/details/104198838
+     *
+     * @param tagIds1
+     * @param tagIds2
+     * @return
+     */
+    public static int minDistance(int[] tagIds1, int[] tagIds2) {
+        int n = tagIds1.length;
+        int m = tagIds2.length;
+
+        if (n * m == 0) {
+            return n + m;
+        }
+
+        int[][] d = new int[n + 1][m + 1];
+        for (int i = 0; i < n + 1; i++) {
+            d[i][0] = i;
+        }
+
+        for (int j = 0; j < m + 1; j++) {
+            d[0][j] = j;
+        }
+
+        for (int i = 1; i < n + 1; i++) {
+            for (int j = 1; j < m + 1; j++) {
+                int left = d[i - 1][j] + 1;
+                int down = d[i][j - 1] + 1;
+                int left_down = d[i - 1][j - 1];
+                if (tagIds1[i - 1] != tagIds2[j - 1]) {
+                    left_down += 1;
+                }
+                d[i][j] = Math.min(left, Math.min(down, left_down));
+            }
+        }
+        return d[n][m];
+    }
+
+    /**
+     * 带阈值的编辑距离算法（两行滚动数组 + 提前终止）
+     * 某一行的最小值已经超过阈值时，最终结果一定也超过阈值，直接返回
+     *
+     * @param tagIds1
+     * @param tagIds2
+     * @param maxDistance 阈值，通常为当前 Top-K 中第 k 名的距离
+     * @return 不超过阈值时返回准确的距离，否则返回 maxDistance + 1
+     */
+    public static int minDistance(int[] tagIds1, int[] tagIds2, int maxDistance) {
+        int n = tagIds1.length;
+        int m = tagIds2.length;
+        // 长度差就是距离的下界
+        if (Math.abs(n - m) > maxDistance) {
+            return exceeded(maxDistance);
+        }
+        if (n * m == 0) {
+            return n + m;
+        }
+
+        int[][] rows = getRows(m + 1);
+        int[] prev = rows[0];
+        int[] cur = rows[1];
+        for (int j = 0; j < m + 1; j++) {
+            prev[j] = j;
+        }
+
+        for (int i = 1; i < n + 1; i++) {
+            cur[0] = i;
+            int rowMin = i;
+            int tagId = tagIds1[i - 1];
+            for (int j = 1; j < m + 1; j++) {
+                int left_down = prev[j - 1];
+                if (tagId != tagIds2[j - 1]) {
+                    left_down += 1;
+                }
+                cur[j] = Math.min(prev[j] + 1, Math.min(cur[j - 1] + 1, left_down));
+                rowMin = Math.min(rowMin, cur[j]);
+            }
+            if (rowMin > maxDistance) {
+                return exceeded(maxDistance);
+            }
+            int[] temp = prev;
+            prev = cur;
+            cur = temp;
+        }
+        return prev[m] > maxDistance ? exceeded(maxDistance) : prev[m];
+    }
+
+    /**
+     * 带阈值的编辑距离算法（两行滚动数组 + 提前终止）
+     *
+     * @param tagList1
+     * @param tagList2
+     * @param maxDistance 阈值，通常为当前 Top-K 中第 k 名的距离
+     * @return 不超过阈值时返回准确的距离，否则返回 maxDistance + 1
+     */
+    public static int minDistance(List<String> tagList1, List<String> tagList2, int maxDistance) {
+        int n = tagList1.size();
+        int m = tagList2.size();
+        if (Math.abs(n - m) > maxDistance) {
+            return exceeded(maxDistance);
+        }
+        if (n * m == 0) {
+            return n + m;
+        }
+
+        int[][] rows = getRows(m + 1);
+        int[] prev = rows[0];
+        int[] cur = rows[1];
+        for (int j = 0; j < m + 1; j++) {
+            prev[j] = j;
+        }
+
+        for (int i = 1; i < n + 1; i++) {
+            cur[0] = i;
+            int rowMin = i;
+            String tag = tagList1.get(i - 1);
+            for (int j = 1; j < m + 1; j++) {
+                int left_down = prev[j - 1];
+                if (!Objects.equals(tag, tagList2.get(j - 1))) {
+                    left_down += 1;
+                }
+                cur[j] = Math.min(prev[j] + 1, Math.min(cur[j - 1] + 1, left_down));
+                rowMin = Math.min(rowMin, cur[j]);
+            }
+            if (rowMin > maxDistance) {
+                return exceeded(maxDistance);
+            }
+            int[] temp = prev;
+            prev = cur;
+            cur = temp;
+        }
+        return prev[m] > maxDistance ? exceeded(maxDistance) : prev[m];
+    }
+
+    /**
+     * 带权重的编辑距离（两行滚动数组 + 提前终止），用于相近标签（如 Java 与 Spring）部分抵消的场景
+     *
+     * @param tagIds1
+     * @param tagIds2
+     * @param maxDistance      阈值
+     * @param gapCost          插入、删除一个标签的代价
+     * @param substitutionCost 替换标签的代价，相同标签应为 0，且不超过 gapCost * 2
+     * @return 不超过阈值时返回准确的距离，否则返回 maxDistance + 1
+     */
+    public static int minDistance(int[] tagIds1, int[] tagIds2, int maxDistance, int gapCost, IntBinaryOperator substitutionCost) {
+        int n = tagIds1.length;
+        int m = tagIds2.length;
+        if ((long) Math.abs(n - m) * gapCost > maxDistance) {
+            return exceeded(maxDistance);
+        }
+        if (n * m == 0) {
+            return (n + m) * gapCost;
+        }
+
+        int[][] rows = getRows(m + 1);
+        int[] prev = rows[0];
+        int[] cur = rows[1];
+        for (int j = 0; j < m + 1; j++) {
+            prev[j] = j * gapCost;
+        }
+
+        for (int i = 1; i < n + 1; i++) {
+            cur[0] = i * gapCost;
+            int rowMin = cur[0];
+            int tagId = tagIds1[i - 1];
+            for (int j = 1; j < m + 1; j++) {
+                int left_down = prev[j - 1];
+                if (tagId != tagIds2[j - 1]) {
+                    left_down += substitutionCost.applyAsInt(tagId, tagIds2[j - 1]);
+                }
+                cur[j] = Math.min(prev[j] + gapCost, Math.min(cur[j - 1] + gapCost, left_down));
+                rowMin = Math.min(rowMin, cur[j]);
+            }
+            if (rowMin > maxDistance) {
+                return exceeded(maxDistance);
+            }
+            int[] temp = prev;
+            prev = cur;
+            cur = temp;
+        }
+        return prev[m] > maxDistance ? exceeded(maxDistance) : prev[m];
+    }
+
+    /**
+     * 获取当前线程的两行缓冲区，长度不够时扩容
+     */
+    private static int[][] getRows(int length) {
+        int[][] rows = ROW_BUFFER.get();
+        if (rows[0].length < length) {
+            int newLength = Math.max(length, rows[0].length * 2);
+            rows[0] = new int[newLength];
+            rows[1] = new int[newLength];
+        }
+        return rows;
+    }
+
+    private static int exceeded(int maxDistance) {
+        return maxDistance == Integer.MAX_VALUE ? maxDistance : maxDistance + 1;
+    }
+
     /**
      * 编辑距离算法（用于计算最相似的两个字符串）
      * 原理：https://blog.csdn.net/DBC_121/article/details/104198838
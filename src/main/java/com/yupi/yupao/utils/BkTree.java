@@ -0,0 +1,116 @@
+package com.yupi.yupao.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BK 树（按字符串编辑距离组织的度量树），用于在标签字典中查找拼写相近的标签
+ * 子节点按与父节点的距离分组，查询半径为 r 时只需访问距离在 [d - r, d + r] 内的子树，不用遍历整个字典
+ * 构建后只读，可以被多个线程同时查询
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+public class BkTree {
+
+    private Node root;
+
+    private int size = 0;
+
+    /**
+     * 添加词，重复的词忽略
+     *
+     * @param term
+     */
+    public void add(String term) {
+        if (root == null) {
+            root = new Node(term, size++);
+            return;
+        }
+        Node node = root;
+        while (true) {
+            int distance = AlgorithmUtils.minDistance(node.term, term);
+            if (distance == 0) {
+                return;
+            }
+            Node child = node.children.get(distance);
+            if (child == null) {
+                node.children.put(distance, new Node(term, size++));
+                return;
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * 查找距离不超过 radius 的词
+     *
+     * @param query
+     * @param radius
+     * @return 按距离升序，距离相同时按添加顺序
+     */
+    public List<String> search(String query, int radius) {
+        if (root == null) {
+            return new ArrayList<>();
+        }
+        List<Node> matchList = new ArrayList<>();
+        List<Integer> distanceList = new ArrayList<>();
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            int distance = AlgorithmUtils.minDistance(node.term, query);
+            if (distance <= radius) {
+                matchList.add(node);
+                distanceList.add(distance);
+            }
+            // 三角不等式：目标词与子节点的距离一定在 [distance - radius, distance + radius] 内
+            for (int childDistance = Math.max(1, distance - radius); childDistance <= distance + radius; childDistance++) {
+                Node child = node.children.get(childDistance);
+                if (child != null) {
+                    stack.push(child);
+                }
+            }
+        }
+        Integer[] indexes = new Integer[matchList.size()];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = i;
+        }
+        Arrays.sort(indexes, Comparator.<Integer>comparingInt(distanceList::get).thenComparingInt(i -> matchList.get(i).order));
+        List<String> result = new ArrayList<>(indexes.length);
+        for (Integer index : indexes) {
+            result.add(matchList.get(index).term);
+        }
+        return result;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static class Node {
+
+        private final String term;
+
+        /**
+         * 添加顺序
+         */
+        private final int order;
+
+        /**
+         * 与当前节点的距离 => 子节点
+         */
+        private final Map<Integer, Node> children = new HashMap<>(4);
+
+        private Node(String term, int order) {
+            this.term = term;
+            this.order = order;
+        }
+    }
+}
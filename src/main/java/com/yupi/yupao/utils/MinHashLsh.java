@@ -0,0 +1,161 @@
+package com.yupi.yupao.utils;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * MinHash 局部敏感哈希索引（用于近似查找标签集合相似的用户）
+ * 每个用户的标签集合计算 bands * rows 个 MinHash 值，按 band 分组后放入桶中，
+ * 查询时只取与当前用户至少一个 band 完全相同的用户作为候选
+ * Jaccard 相似度为 s 的两个用户成为候选的概率为 1 - (1 - s^rows)^bands
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+public class MinHashLsh {
+
+    /**
+     * 梅森素数 2^31 - 1
+     */
+    private static final long PRIME = (1L << 31) - 1;
+
+    private final int bands;
+
+    private final int rows;
+
+    /**
+     * 哈希函数 h(x) = (a * x + b) mod PRIME 的参数
+     */
+    private final long[] hashA;
+
+    private final long[] hashB;
+
+    /**
+     * 桶 => 用户 id
+     */
+    private final Map<Long, Set<Long>> bucketUserIdMap = new ConcurrentHashMap<>();
+
+    /**
+     * 用户 id => 所在的桶，用于更新时移除旧数据
+     */
+    private final Map<Long, long[]> userBucketMap = new ConcurrentHashMap<>();
+
+    public MinHashLsh(int bands, int rows, long seed) {
+        if (bands <= 0 || rows <= 0) {
+            throw new IllegalArgumentException("bands and rows must be positive");
+        }
+        this.bands = bands;
+        this.rows = rows;
+        Random random = new Random(seed);
+        int hashCount = bands * rows;
+        hashA = new long[hashCount];
+        hashB = new long[hashCount];
+        for (int i = 0; i < hashCount; i++) {
+            hashA[i] = 1 + random.nextInt((int) PRIME - 1);
+            hashB[i] = random.nextInt((int) PRIME);
+        }
+    }
+
+    /**
+     * 更新用户的标签集合
+     *
+     * @param userId
+     * @param tagIds 为空时从索引中移除
+     */
+    public synchronized void put(long userId, int[] tagIds) {
+        long[] oldBuckets = tagIds.length == 0 ? userBucketMap.remove(userId) : userBucketMap.put(userId, buckets(tagIds));
+        if (oldBuckets != null) {
+            for (long bucket : oldBuckets) {
+                Set<Long> userIdSet = bucketUserIdMap.get(bucket);
+                if (userIdSet != null) {
+                    userIdSet.remove(userId);
+                    if (userIdSet.isEmpty()) {
+                        bucketUserIdMap.remove(bucket);
+                    }
+                }
+            }
+        }
+        if (tagIds.length > 0) {
+            for (long bucket : userBucketMap.get(userId)) {
+                bucketUserIdMap.computeIfAbsent(bucket, key -> ConcurrentHashMap.newKeySet()).add(userId);
+            }
+        }
+    }
+
+    /**
+     * 获取与给定标签集合至少有一个 band 相同的用户
+     *
+     * @param tagIds
+     * @return
+     */
+    public Set<Long> getCandidateUserIds(int[] tagIds) {
+        Set<Long> candidateIdSet = new HashSet<>();
+        if (tagIds.length == 0) {
+            return candidateIdSet;
+        }
+        for (long bucket : buckets(tagIds)) {
+            Set<Long> userIdSet = bucketUserIdMap.get(bucket);
+            if (userIdSet != null) {
+                candidateIdSet.addAll(userIdSet);
+            }
+        }
+        return candidateIdSet;
+    }
+
+    public int getBands() {
+        return bands;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * 计算标签集合的 MinHash 签名
+     *
+     * @param tagIds
+     * @return
+     */
+    public int[] signature(int[] tagIds) {
+        int[] signature = new int[hashA.length];
+        for (int i = 0; i < hashA.length; i++) {
+            long min = Long.MAX_VALUE;
+            for (int tagId : tagIds) {
+                long hash = (hashA[i] * (tagId & 0xffffffffL) + hashB[i]) % PRIME;
+                if (hash < min) {
+                    min = hash;
+                }
+            }
+            signature[i] = (int) min;
+        }
+        return signature;
+    }
+
+    /**
+     * 签名按 band 分组，每组哈希为一个桶（桶号中混入 band 下标，不同 band 不会互相命中）
+     */
+    private long[] buckets(int[] tagIds) {
+        int[] signature = signature(tagIds);
+        long[] buckets = new long[bands];
+        for (int band = 0; band < bands; band++) {
+            long hash = band;
+            for (int row = 0; row < rows; row++) {
+                hash = hash * 0x9E3779B97F4A7C15L + signature[band * rows + row];
+            }
+            buckets[band] = mix(hash);
+        }
+        return buckets;
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
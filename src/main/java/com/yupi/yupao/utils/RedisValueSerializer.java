@@ -0,0 +1,149 @@
+package com.yupi.yupao.utils;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * RedisTemplate 的值序列化器，可切换编码，超过阈值时用 LZ4 压缩
+ * 格式：1 字节魔数 + 1 字节标志（低 4 位为编码，最高位为是否压缩）[+ 4 字节原始长度] + 数据
+ * 旧版本直接写入的 JDK 序列化数据以 0xACED 开头，与魔数不冲突，读取时自动识别，滚动升级期间新旧数据都能读
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+public class RedisValueSerializer implements RedisSerializer<Object> {
+
+    private static final byte MAGIC = 'Y';
+
+    private static final byte FLAG_LZ4 = (byte) 0x80;
+
+    private static final byte CODEC_MASK = 0x0F;
+
+    private static final int HEADER_LENGTH = 2;
+
+    /**
+     * JDK 序列化数据的开头（ObjectStreamConstants.STREAM_MAGIC）
+     */
+    private static final byte JDK_STREAM_MAGIC_0 = (byte) 0xAC;
+
+    private static final byte JDK_STREAM_MAGIC_1 = (byte) 0xED;
+
+    private static final LZ4Compressor LZ4_COMPRESSOR = LZ4Factory.fastestInstance().fastCompressor();
+
+    private static final LZ4FastDecompressor LZ4_DECOMPRESSOR = LZ4Factory.fastestInstance().fastDecompressor();
+
+    /**
+     * 编码，id 写入标志位，不能修改已有的 id
+     */
+    public enum Codec {
+
+        /**
+         * 旧版本格式：不带头部、不压缩的 JDK 序列化，升级期间让未升级的节点也能读
+         */
+        LEGACY(0, new JdkSerializationRedisSerializer()),
+
+        /**
+         * JDK 序列化（类需实现 Serializable，字段变化后可能无法读取）
+         */
+        JDK(1, new JdkSerializationRedisSerializer()),
+
+        /**
+         * 带类型信息（@class）的 JSON，类只需有无参构造和 getter / setter，增删字段可以兼容
+         */
+        JSON(2, new GenericJackson2JsonRedisSerializer());
+
+        private final byte id;
+
+        private final RedisSerializer<Object> serializer;
+
+        Codec(int id, RedisSerializer<Object> serializer) {
+            this.id = (byte) id;
+            this.serializer = serializer;
+        }
+
+        public static Codec of(String name) {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        }
+
+        private static Codec of(byte id) {
+            for (Codec codec : values()) {
+                if (codec.id == id) {
+                    return codec;
+                }
+            }
+            throw new SerializationException("unknown redis value codec: " + id);
+        }
+    }
+
+    private final Codec codec;
+
+    private final int compressThreshold;
+
+    /**
+     * @param codec             写入使用的编码，读取时支持所有编码
+     * @param compressThreshold 编码后超过该字节数时压缩，0 为不压缩（LEGACY 不压缩）
+     */
+    public RedisValueSerializer(Codec codec, int compressThreshold) {
+        this.codec = codec;
+        this.compressThreshold = compressThreshold;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        byte[] data = codec.serializer.serialize(value);
+        if (codec == Codec.LEGACY) {
+            return data;
+        }
+        if (compressThreshold > 0 && data.length >= compressThreshold) {
+            byte[] compressed = new byte[HEADER_LENGTH + 4 + LZ4_COMPRESSOR.maxCompressedLength(data.length)];
+            int compressedLength = LZ4_COMPRESSOR.compress(data, 0, data.length, compressed, HEADER_LENGTH + 4);
+            // 压缩后没有变小则不压缩
+            if (compressedLength + 4 < data.length) {
+                compressed[0] = MAGIC;
+                compressed[1] = (byte) (codec.id | FLAG_LZ4);
+                ByteBuffer.wrap(compressed, HEADER_LENGTH, 4).putInt(data.length);
+                return Arrays.copyOf(compressed, HEADER_LENGTH + 4 + compressedLength);
+            }
+        }
+        byte[] bytes = new byte[HEADER_LENGTH + data.length];
+        bytes[0] = MAGIC;
+        bytes[1] = codec.id;
+        System.arraycopy(data, 0, bytes, HEADER_LENGTH, data.length);
+        return bytes;
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes.length >= 2 && bytes[0] == JDK_STREAM_MAGIC_0 && bytes[1] == JDK_STREAM_MAGIC_1) {
+            return Codec.LEGACY.serializer.deserialize(bytes);
+        }
+        if (bytes.length < HEADER_LENGTH || bytes[0] != MAGIC) {
+            throw new SerializationException("unknown redis value format");
+        }
+        Codec valueCodec = Codec.of((byte) (bytes[1] & CODEC_MASK));
+        byte[] data;
+        if ((bytes[1] & FLAG_LZ4) != 0) {
+            int length = ByteBuffer.wrap(bytes, HEADER_LENGTH, 4).getInt();
+            data = new byte[length];
+            LZ4_DECOMPRESSOR.decompress(bytes, HEADER_LENGTH + 4, data, 0, length);
+        } else {
+            data = Arrays.copyOfRange(bytes, HEADER_LENGTH, bytes.length);
+        }
+        return valueCodec.serializer.deserialize(data);
+    }
+}
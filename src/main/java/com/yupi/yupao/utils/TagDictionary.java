@@ -0,0 +1,128 @@
+package com.yupi.yupao.utils;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 标签字典（标签字符串 => 连续的 int id）
+ * 匹配时只比较 int，避免字符串比较和重复创建字符串
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+public class TagDictionary {
+
+    /**
+     * 不存在的标签
+     */
+    public static final int NOT_FOUND = -1;
+
+    private final Map<String, Integer> tagIdMap = new ConcurrentHashMap<>();
+
+    /**
+     * 小写标签 => 忽略大小写后相同的所有标签 id（与数据库的排序规则一致，搜索时 Java 和 java 是同一个标签）
+     */
+    private final Map<String, int[]> lowerCaseIdMap = new ConcurrentHashMap<>();
+
+    /**
+     * id => 标签，下标即 id
+     */
+    private volatile String[] tagNames = new String[64];
+
+    private volatile int size = 0;
+
+    /**
+     * 获取标签 id，不存在时分配新 id
+     *
+     * @param tag
+     * @return
+     */
+    public int getOrCreateId(String tag) {
+        Integer id = tagIdMap.get(tag);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = tagIdMap.get(tag);
+            if (id != null) {
+                return id;
+            }
+            int newId = size;
+            if (newId == tagNames.length) {
+                tagNames = Arrays.copyOf(tagNames, newId * 2);
+            }
+            // 先写名称再发布 id，保证拿到 id 的线程一定能查到名称
+            tagNames[newId] = tag.intern();
+            size = newId + 1;
+            tagIdMap.put(tagNames[newId], newId);
+            lowerCaseIdMap.merge(tag.toLowerCase(Locale.ROOT), new int[]{newId}, (oldIds, ids) -> {
+                int[] mergedIds = Arrays.copyOf(oldIds, oldIds.length + 1);
+                mergedIds[oldIds.length] = newId;
+                return mergedIds;
+            });
+            return newId;
+        }
+    }
+
+    /**
+     * 获取标签 id
+     *
+     * @param tag
+     * @return 不存在时返回 {@link #NOT_FOUND}
+     */
+    public int getId(String tag) {
+        Integer id = tagIdMap.get(tag);
+        return id == null ? NOT_FOUND : id;
+    }
+
+    /**
+     * 获取忽略大小写后与给定标签相同的所有标签 id
+     *
+     * @param tag
+     * @return 不存在时返回空数组
+     */
+    public int[] getIdsIgnoreCase(String tag) {
+        int[] ids = lowerCaseIdMap.get(tag.toLowerCase(Locale.ROOT));
+        return ids == null ? new int[0] : ids;
+    }
+
+    /**
+     * 根据 id 获取标签
+     *
+     * @param id
+     * @return
+     */
+    public String getTag(int id) {
+        if (id < 0 || id >= size) {
+            return null;
+        }
+        return tagNames[id];
+    }
+
+    /**
+     * 标签数量
+     *
+     * @return
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 将标签列表编码为 id 数组（保持原顺序）
+     *
+     * @param tagList
+     * @return
+     */
+    public int[] encode(Collection<String> tagList) {
+        int[] tagIds = new int[tagList.size()];
+        int i = 0;
+        for (String tag : tagList) {
+            tagIds[i++] = getOrCreateId(tag);
+        }
+        return tagIds;
+    }
+}
@@ -0,0 +1,21 @@
+package com.yupi.yupao.utils;
+
+/**
+ * 两组标签 id 之间的距离（越小越相似）
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+@FunctionalInterface
+public interface TagDistance {
+
+    /**
+     * 计算距离
+     *
+     * @param tagIds1
+     * @param tagIds2
+     * @param maxDistance 阈值，超过阈值时可以提前终止
+     * @return 不超过阈值时返回准确的距离，否则返回大于阈值的值
+     */
+    int distance(int[] tagIds1, int[] tagIds2, int maxDistance);
+}
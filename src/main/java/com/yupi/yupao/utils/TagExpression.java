@@ -0,0 +1,324 @@
+package com.yupi.yupao.utils;
+
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 标签布尔表达式，如 (Java OR Go) AND NOT 大一
+ * 语法：关键字 AND / OR / NOT 不区分大小写，优先级 NOT > AND > OR，支持括号
+ * 标签名含空格、括号或与关键字同名时用双引号包裹，如 "C++" AND NOT "not"
+ * 同一个表达式既可以在位图上求值（倒排索引），也可以对单个用户的标签求值（全表扫描兜底）
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+public abstract class TagExpression {
+
+    /**
+     * 表达式最大长度
+     */
+    public static final int MAX_LENGTH = 512;
+
+    /**
+     * 最多包含的标签数
+     */
+    public static final int MAX_TAGS = 32;
+
+    /**
+     * 最大嵌套深度，防止恶意输入导致栈溢出
+     */
+    private static final int MAX_DEPTH = 16;
+
+    /**
+     * 在位图上求值，不会修改 tagBitmaps 返回的位图和 universe，返回值可能就是其中之一，调用方不能修改
+     *
+     * @param tagBitmaps 标签名 => 拥有该标签的用户位图，标签不存在时返回 null
+     * @param universe   全部用户（NOT 的补集范围）
+     * @return
+     */
+    public abstract RoaringBitmap evaluate(Function<String, RoaringBitmap> tagBitmaps, RoaringBitmap universe);
+
+    /**
+     * 判断一个用户的标签是否满足表达式
+     *
+     * @param tags
+     * @return
+     */
+    public abstract boolean test(Collection<String> tags);
+
+    /**
+     * 解析表达式
+     *
+     * @param expression
+     * @return
+     * @throws IllegalArgumentException 语法错误，异常信息可以直接返回给前端
+     */
+    public static TagExpression parse(String expression) {
+        if (expression == null || expression.trim().isEmpty()) {
+            throw new IllegalArgumentException("表达式为空");
+        }
+        if (expression.length() > MAX_LENGTH) {
+            throw new IllegalArgumentException("表达式过长");
+        }
+        Parser parser = new Parser(tokenize(expression));
+        TagExpression result = parser.parseOr(0);
+        if (parser.position < parser.tokens.size()) {
+            throw new IllegalArgumentException("表达式语法错误，位置：" + parser.tokens.get(parser.position).text);
+        }
+        return result;
+    }
+
+    private static List<Token> tokenize(String expression) {
+        List<Token> tokens = new ArrayList<>();
+        int tagCount = 0;
+        int i = 0;
+        int length = expression.length();
+        while (i < length) {
+            char c = expression.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '(' || c == ')') {
+                tokens.add(new Token(c == '(' ? TokenType.LEFT : TokenType.RIGHT, String.valueOf(c)));
+                i++;
+            } else if (c == '"') {
+                int end = expression.indexOf('"', i + 1);
+                if (end < 0) {
+                    throw new IllegalArgumentException("引号不匹配");
+                }
+                String tagName = expression.substring(i + 1, end).trim();
+                if (tagName.isEmpty()) {
+                    throw new IllegalArgumentException("标签名为空");
+                }
+                tokens.add(new Token(TokenType.TAG, tagName));
+                tagCount++;
+                i = end + 1;
+            } else {
+                int start = i;
+                while (i < length && !Character.isWhitespace(expression.charAt(i))
+                        && "()\"".indexOf(expression.charAt(i)) < 0) {
+                    i++;
+                }
+                String word = expression.substring(start, i);
+                if ("AND".equalsIgnoreCase(word)) {
+                    tokens.add(new Token(TokenType.AND, word));
+                } else if ("OR".equalsIgnoreCase(word)) {
+                    tokens.add(new Token(TokenType.OR, word));
+                } else if ("NOT".equalsIgnoreCase(word)) {
+                    tokens.add(new Token(TokenType.NOT, word));
+                } else {
+                    tokens.add(new Token(TokenType.TAG, word));
+                    tagCount++;
+                }
+            }
+            if (tagCount > MAX_TAGS) {
+                throw new IllegalArgumentException("标签数不能超过 " + MAX_TAGS);
+            }
+        }
+        return tokens;
+    }
+
+    private enum TokenType {
+        TAG, AND, OR, NOT, LEFT, RIGHT
+    }
+
+    private static class Token {
+
+        private final TokenType type;
+
+        private final String text;
+
+        private Token(TokenType type, String text) {
+            this.type = type;
+            this.text = text;
+        }
+    }
+
+    /**
+     * 递归下降解析
+     */
+    private static class Parser {
+
+        private final List<Token> tokens;
+
+        private int position = 0;
+
+        private Parser(List<Token> tokens) {
+            this.tokens = tokens;
+        }
+
+        private TagExpression parseOr(int depth) {
+            if (depth > MAX_DEPTH) {
+                throw new IllegalArgumentException("表达式嵌套过深");
+            }
+            List<TagExpression> children = new ArrayList<>();
+            children.add(parseAnd(depth));
+            while (accept(TokenType.OR)) {
+                children.add(parseAnd(depth));
+            }
+            return children.size() == 1 ? children.get(0) : new Or(children);
+        }
+
+        private TagExpression parseAnd(int depth) {
+            List<TagExpression> children = new ArrayList<>();
+            children.add(parseNot(depth));
+            while (accept(TokenType.AND)) {
+                children.add(parseNot(depth));
+            }
+            return children.size() == 1 ? children.get(0) : new And(children);
+        }
+
+        private TagExpression parseNot(int depth) {
+            if (depth > MAX_DEPTH) {
+                throw new IllegalArgumentException("表达式嵌套过深");
+            }
+            if (accept(TokenType.NOT)) {
+                TagExpression child = parseNot(depth + 1);
+                // NOT NOT x 化简为 x
+                return child instanceof Not ? ((Not) child).child : new Not(child);
+            }
+            if (position >= tokens.size()) {
+                throw new IllegalArgumentException("表达式不完整");
+            }
+            Token token = tokens.get(position++);
+            if (token.type == TokenType.TAG) {
+                return new Tag(token.text);
+            }
+            if (token.type == TokenType.LEFT) {
+                TagExpression child = parseOr(depth + 1);
+                if (!accept(TokenType.RIGHT)) {
+                    throw new IllegalArgumentException("括号不匹配");
+                }
+                return child;
+            }
+            throw new IllegalArgumentException("表达式语法错误，位置：" + token.text);
+        }
+
+        private boolean accept(TokenType type) {
+            if (position < tokens.size() && tokens.get(position).type == type) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private static class Tag extends TagExpression {
+
+        private final String tagName;
+
+        private Tag(String tagName) {
+            this.tagName = tagName;
+        }
+
+        @Override
+        public RoaringBitmap evaluate(Function<String, RoaringBitmap> tagBitmaps, RoaringBitmap universe) {
+            RoaringBitmap bitmap = tagBitmaps.apply(tagName);
+            return bitmap == null ? new RoaringBitmap() : bitmap;
+        }
+
+        @Override
+        public boolean test(Collection<String> tags) {
+            return tags.contains(tagName);
+        }
+    }
+
+    private static class Not extends TagExpression {
+
+        private final TagExpression child;
+
+        private Not(TagExpression child) {
+            this.child = child;
+        }
+
+        @Override
+        public RoaringBitmap evaluate(Function<String, RoaringBitmap> tagBitmaps, RoaringBitmap universe) {
+            return RoaringBitmap.andNot(universe, child.evaluate(tagBitmaps, universe));
+        }
+
+        @Override
+        public boolean test(Collection<String> tags) {
+            return !child.test(tags);
+        }
+    }
+
+    private static class And extends TagExpression {
+
+        private final List<TagExpression> children;
+
+        private And(List<TagExpression> children) {
+            this.children = children;
+        }
+
+        @Override
+        public RoaringBitmap evaluate(Function<String, RoaringBitmap> tagBitmaps, RoaringBitmap universe) {
+            // 肯定条件求交集（从最小的开始），否定条件直接从结果中减去，不用先对全集求补
+            List<RoaringBitmap> includes = new ArrayList<>();
+            List<RoaringBitmap> excludes = new ArrayList<>();
+            for (TagExpression child : children) {
+                if (child instanceof Not) {
+                    excludes.add(((Not) child).child.evaluate(tagBitmaps, universe));
+                } else {
+                    includes.add(child.evaluate(tagBitmaps, universe));
+                }
+            }
+            RoaringBitmap result;
+            if (includes.isEmpty()) {
+                result = universe;
+            } else {
+                includes.sort(Comparator.comparingInt(RoaringBitmap::getCardinality));
+                result = includes.get(0);
+                for (int i = 1; i < includes.size() && !result.isEmpty(); i++) {
+                    result = RoaringBitmap.and(result, includes.get(i));
+                }
+            }
+            for (int i = 0; i < excludes.size() && !result.isEmpty(); i++) {
+                result = RoaringBitmap.andNot(result, excludes.get(i));
+            }
+            return result;
+        }
+
+        @Override
+        public boolean test(Collection<String> tags) {
+            for (TagExpression child : children) {
+                if (!child.test(tags)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static class Or extends TagExpression {
+
+        private final List<TagExpression> children;
+
+        private Or(List<TagExpression> children) {
+            this.children = children;
+        }
+
+        @Override
+        public RoaringBitmap evaluate(Function<String, RoaringBitmap> tagBitmaps, RoaringBitmap universe) {
+            RoaringBitmap[] bitmaps = new RoaringBitmap[children.size()];
+            for (int i = 0; i < bitmaps.length; i++) {
+                bitmaps[i] = children.get(i).evaluate(tagBitmaps, universe);
+            }
+            return FastAggregation.or(bitmaps);
+        }
+
+        @Override
+        public boolean test(Collection<String> tags) {
+            for (TagExpression child : children) {
+                if (child.test(tags)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.yupi.yupao.utils;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 标签计数器：每个标签的用户数、每对标签同时出现的用户数
+ * 按用户标签的增减增量维护，计数为 0 的项直接移除
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+public class TagFacetCounter {
+
+    /**
+     * 标签 id => 用户数
+     */
+    private final Map<Integer, Integer> tagCountMap = new ConcurrentHashMap<>();
+
+    /**
+     * 标签对（较小的 id 在高 32 位）=> 同时拥有两个标签的用户数
+     */
+    private final Map<Long, Integer> pairCountMap = new ConcurrentHashMap<>();
+
+    /**
+     * 增减一个用户的标签
+     *
+     * @param tagIds 为 null 时忽略
+     * @param delta  1 为增加，-1 为减少
+     */
+    public void add(int[] tagIds, int delta) {
+        if (tagIds == null || tagIds.length == 0) {
+            return;
+        }
+        // 同一用户的重复标签只计一次
+        int[] sortedTagIds = Arrays.stream(tagIds).distinct().sorted().toArray();
+        for (int i = 0; i < sortedTagIds.length; i++) {
+            tagCountMap.merge(sortedTagIds[i], delta, TagFacetCounter::sum);
+            for (int j = i + 1; j < sortedTagIds.length; j++) {
+                pairCountMap.merge(pairKey(sortedTagIds[i], sortedTagIds[j]), delta, TagFacetCounter::sum);
+            }
+        }
+    }
+
+    public int getTagCount(int tagId) {
+        return tagCountMap.getOrDefault(tagId, 0);
+    }
+
+    public int getPairCount(int tagId1, int tagId2) {
+        return pairCountMap.getOrDefault(pairKey(Math.min(tagId1, tagId2), Math.max(tagId1, tagId2)), 0);
+    }
+
+    /**
+     * 用户数最多的 n 个标签
+     *
+     * @param n
+     * @return [标签 id, 用户数]，按用户数降序
+     */
+    public List<int[]> topTags(int n) {
+        List<int[]> result = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entry : top(tagCountMap, n)) {
+            result.add(new int[]{entry.getKey().intValue(), entry.getValue()});
+        }
+        return result;
+    }
+
+    /**
+     * 同时出现次数最多的 n 对标签
+     *
+     * @param n
+     * @return [标签 id, 标签 id, 用户数]，按用户数降序
+     */
+    public List<int[]> topPairs(int n) {
+        List<int[]> result = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entry : top(pairCountMap, n)) {
+            long key = entry.getKey();
+            result.add(new int[]{(int) (key >>> 32), (int) key, entry.getValue()});
+        }
+        return result;
+    }
+
+    /**
+     * 与另一个计数器对比，统计计数不一致的标签数
+     *
+     * @param other
+     * @return
+     */
+    public int countTagDiff(TagFacetCounter other) {
+        int diff = 0;
+        for (Map.Entry<Integer, Integer> entry : tagCountMap.entrySet()) {
+            if (!entry.getValue().equals(other.tagCountMap.get(entry.getKey()))) {
+                diff++;
+            }
+        }
+        for (Integer tagId : other.tagCountMap.keySet()) {
+            if (!tagCountMap.containsKey(tagId)) {
+                diff++;
+            }
+        }
+        return diff;
+    }
+
+    /**
+     * 小顶堆取前 n 个，计数相同时 id 小的在前
+     */
+    private static List<Map.Entry<Long, Integer>> top(Map<? extends Number, Integer> countMap, int n) {
+        Comparator<Map.Entry<Long, Integer>> comparator = Comparator.<Map.Entry<Long, Integer>>comparingInt(Map.Entry::getValue)
+                .thenComparing(Map.Entry::getKey, Comparator.reverseOrder());
+        PriorityQueue<Map.Entry<Long, Integer>> heap = new PriorityQueue<>(comparator);
+        for (Map.Entry<? extends Number, Integer> entry : countMap.entrySet()) {
+            heap.offer(new AbstractMap.SimpleImmutableEntry<>(entry.getKey().longValue(), entry.getValue()));
+            if (heap.size() > n) {
+                heap.poll();
+            }
+        }
+        List<Map.Entry<Long, Integer>> result = new ArrayList<>(heap);
+        result.sort(comparator.reversed());
+        return result;
+    }
+
+    private static long pairKey(int smallerTagId, int largerTagId) {
+        return ((long) smallerTagId << 32) | (largerTagId & 0xFFFFFFFFL);
+    }
+
+    /**
+     * 合并计数，结果为 0 时返回 null 移除该项
+     */
+    private static Integer sum(Integer count, Integer delta) {
+        int result = count + delta;
+        return result == 0 ? null : result;
+    }
+}
@@ -0,0 +1,173 @@
+package com.yupi.yupao.utils;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 标签树（不可变），预先计算每个标签的祖先闭包和子标签列表，全部使用 int 数组存储
+ * 标签 id 与 {@link TagDictionary} 一致，超出范围的 id 视为没有父标签和子标签
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+public class TagHierarchy {
+
+    public static final TagHierarchy EMPTY = new TagHierarchy(new int[0]);
+
+    /**
+     * 最大深度，防止脏数据中的环导致死循环
+     */
+    private static final int MAX_DEPTH = 32;
+
+    /**
+     * 第 i 个标签的祖先（由近到远）为 ancestorIds[ancestorOffsets[i], ancestorOffsets[i + 1])
+     */
+    private final int[] ancestorOffsets;
+
+    private final int[] ancestorIds;
+
+    /**
+     * 第 i 个标签的子标签为 childIds[childOffsets[i], childOffsets[i + 1])
+     */
+    private final int[] childOffsets;
+
+    private final int[] childIds;
+
+    /**
+     * @param parentIds 标签 id => 父标签 id，没有父标签为 -1
+     */
+    public TagHierarchy(int[] parentIds) {
+        int size = parentIds.length;
+        ancestorOffsets = new int[size + 1];
+        int[] ancestors = new int[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            ancestorOffsets[i] = count;
+            int parent = parentIds[i];
+            for (int depth = 0; parent >= 0 && parent < size && parent != i && depth < MAX_DEPTH; depth++) {
+                if (count == ancestors.length) {
+                    ancestors = Arrays.copyOf(ancestors, count * 2);
+                }
+                ancestors[count++] = parent;
+                parent = parentIds[parent];
+            }
+        }
+        ancestorOffsets[size] = count;
+        ancestorIds = Arrays.copyOf(ancestors, count);
+
+        childOffsets = new int[size + 1];
+        for (int parent : parentIds) {
+            if (parent >= 0 && parent < size) {
+                childOffsets[parent + 1]++;
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            childOffsets[i + 1] += childOffsets[i];
+        }
+        childIds = new int[childOffsets[size]];
+        int[] cursor = Arrays.copyOf(childOffsets, size);
+        for (int i = 0; i < size; i++) {
+            int parent = parentIds[i];
+            if (parent >= 0 && parent < size) {
+                childIds[cursor[parent]++] = i;
+            }
+        }
+    }
+
+    public int size() {
+        return ancestorOffsets.length - 1;
+    }
+
+    /**
+     * 两个标签在树上的距离（经过最近公共祖先的边数）
+     *
+     * @param tagId1
+     * @param tagId2
+     * @param maxHops 最多计算到的距离
+     * @return 没有公共祖先或距离超过 maxHops 时返回 -1
+     */
+    public int hops(int tagId1, int tagId2, int maxHops) {
+        if (tagId1 == tagId2) {
+            return 0;
+        }
+        // 第 0 个为自身，之后依次为祖先
+        for (int i = 0; i <= maxHops; i++) {
+            int ancestor1 = ancestor(tagId1, i);
+            if (ancestor1 < 0) {
+                break;
+            }
+            for (int j = 0; i + j <= maxHops; j++) {
+                int ancestor2 = ancestor(tagId2, j);
+                if (ancestor2 < 0) {
+                    break;
+                }
+                if (ancestor1 == ancestor2) {
+                    return i + j;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 扩展为树上距离不超过 maxHops 的所有标签（含自身），用于召回相近标签的用户
+     *
+     * @param tagIds
+     * @param maxHops
+     * @return
+     */
+    public int[] expand(int[] tagIds, int maxHops) {
+        Set<Integer> visited = new HashSet<>();
+        int[] result = new int[Math.max(16, tagIds.length * 4)];
+        int count = 0;
+        for (int tagId : tagIds) {
+            if (visited.add(tagId)) {
+                result = ensureCapacity(result, count);
+                result[count++] = tagId;
+            }
+        }
+        // 按层向父标签、子标签扩展
+        int frontierFrom = 0;
+        for (int hop = 0; hop < maxHops && frontierFrom < count; hop++) {
+            int frontierTo = count;
+            for (int i = frontierFrom; i < frontierTo; i++) {
+                int tagId = result[i];
+                if (tagId < 0 || tagId >= size()) {
+                    continue;
+                }
+                int parentIndex = ancestorOffsets[tagId];
+                if (parentIndex < ancestorOffsets[tagId + 1] && visited.add(ancestorIds[parentIndex])) {
+                    result = ensureCapacity(result, count);
+                    result[count++] = ancestorIds[parentIndex];
+                }
+                for (int j = childOffsets[tagId]; j < childOffsets[tagId + 1]; j++) {
+                    if (visited.add(childIds[j])) {
+                        result = ensureCapacity(result, count);
+                        result[count++] = childIds[j];
+                    }
+                }
+            }
+            frontierFrom = frontierTo;
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * 第 n 个祖先，n 为 0 时返回自身，不存在返回 -1
+     */
+    private int ancestor(int tagId, int n) {
+        if (n == 0) {
+            return tagId;
+        }
+        if (tagId < 0 || tagId >= size()) {
+            return -1;
+        }
+        int index = ancestorOffsets[tagId] + n - 1;
+        return index < ancestorOffsets[tagId + 1] ? ancestorIds[index] : -1;
+    }
+
+    private static int[] ensureCapacity(int[] array, int count) {
+        return count < array.length ? array : Arrays.copyOf(array, array.length * 2);
+    }
+}
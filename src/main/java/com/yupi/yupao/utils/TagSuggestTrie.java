@@ -0,0 +1,158 @@
+package com.yupi.yupao.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 标签前缀补全字典树（不可变，构建后整体替换）
+ * 节点按层序压平为数组：子节点字符有序存储，查找时二分；每个节点预先保存该前缀下热度最高的 k 个标签
+ * 查询只需沿前缀走 n 步并复制 k 个结果，与标签总数无关
+ * 前缀匹配不区分大小写，返回原始标签名
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+public class TagSuggestTrie {
+
+    public static final TagSuggestTrie EMPTY = new TagSuggestTrie(Collections.emptyMap(), 1);
+
+    /**
+     * 标签名，下标即标签序号（按热度降序、名称升序排列，序号越小越靠前）
+     */
+    private final String[] tagNames;
+
+    /**
+     * 第 i 个节点的子节点为 [childOffsets[i], childOffsets[i + 1])，childChars 中为对应的字符
+     */
+    private final int[] childOffsets;
+
+    private final char[] childChars;
+
+    /**
+     * 第 i 个节点的补全结果（标签序号）为 topTags[topOffsets[i], topOffsets[i + 1])
+     */
+    private final int[] topOffsets;
+
+    private final int[] topTags;
+
+    /**
+     * @param tagPopularityMap 标签名 => 热度（拥有该标签的用户数）
+     * @param k                每个前缀保留的补全数
+     */
+    public TagSuggestTrie(Map<String, Integer> tagPopularityMap, int k) {
+        List<Map.Entry<String, Integer>> entryList = new ArrayList<>(tagPopularityMap.entrySet());
+        entryList.sort((a, b) -> a.getValue().equals(b.getValue())
+                ? a.getKey().compareTo(b.getKey()) : Integer.compare(b.getValue(), a.getValue()));
+        tagNames = new String[entryList.size()];
+        for (int i = 0; i < tagNames.length; i++) {
+            tagNames[i] = entryList.get(i).getKey();
+        }
+
+        // 先建指针形式的树，标签按序号插入，节点上的列表天然有序，只保留前 k 个
+        BuildNode root = new BuildNode();
+        int nodeCount = 1;
+        for (int tagIndex = 0; tagIndex < tagNames.length; tagIndex++) {
+            String key = tagNames[tagIndex].toLowerCase(Locale.ROOT);
+            BuildNode node = root;
+            node.addTop(tagIndex, k);
+            for (int i = 0; i < key.length(); i++) {
+                BuildNode child = node.children.get(key.charAt(i));
+                if (child == null) {
+                    child = new BuildNode();
+                    node.children.put(key.charAt(i), child);
+                    nodeCount++;
+                }
+                child.addTop(tagIndex, k);
+                node = child;
+            }
+        }
+
+        // 按层序压平，同一节点的子节点连续存放
+        childOffsets = new int[nodeCount + 1];
+        childChars = new char[nodeCount];
+        topOffsets = new int[nodeCount + 1];
+        int topCount = 0;
+        BuildNode[] queue = new BuildNode[nodeCount];
+        queue[0] = root;
+        int tail = 1;
+        for (int head = 0; head < nodeCount; head++) {
+            BuildNode node = queue[head];
+            childOffsets[head] = tail;
+            for (Map.Entry<Character, BuildNode> child : node.children.entrySet()) {
+                childChars[tail] = child.getKey();
+                queue[tail++] = child.getValue();
+            }
+            topOffsets[head] = topCount;
+            topCount += node.topSize;
+        }
+        childOffsets[nodeCount] = tail;
+        topOffsets[nodeCount] = topCount;
+        topTags = new int[topCount];
+        for (int i = 0; i < nodeCount; i++) {
+            System.arraycopy(queue[i].top, 0, topTags, topOffsets[i], queue[i].topSize);
+        }
+    }
+
+    /**
+     * 按前缀补全
+     *
+     * @param prefix
+     * @param size   最多返回的数量，超过 k 时按 k 返回
+     * @return 按热度降序的标签名
+     */
+    public List<String> suggest(String prefix, int size) {
+        String key = prefix.toLowerCase(Locale.ROOT);
+        int node = 0;
+        for (int i = 0; i < key.length() && node >= 0; i++) {
+            node = findChild(node, key.charAt(i));
+        }
+        if (node < 0) {
+            return new ArrayList<>();
+        }
+        int from = topOffsets[node];
+        int to = Math.min(topOffsets[node + 1], from + size);
+        List<String> result = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            result.add(tagNames[topTags[i]]);
+        }
+        return result;
+    }
+
+    public int size() {
+        return tagNames.length;
+    }
+
+    /**
+     * 在有序的子节点字符中二分查找
+     *
+     * @return 不存在返回 -1
+     */
+    private int findChild(int node, char c) {
+        int index = Arrays.binarySearch(childChars, childOffsets[node], childOffsets[node + 1], c);
+        return index < 0 ? -1 : index;
+    }
+
+    private static class BuildNode {
+
+        private final TreeMap<Character, BuildNode> children = new TreeMap<>();
+
+        private int[] top = new int[0];
+
+        private int topSize = 0;
+
+        private void addTop(int tagIndex, int k) {
+            if (topSize >= k) {
+                return;
+            }
+            if (topSize == top.length) {
+                top = Arrays.copyOf(top, Math.min(k, Math.max(2, topSize * 2)));
+            }
+            top[topSize++] = tagIndex;
+        }
+    }
+}
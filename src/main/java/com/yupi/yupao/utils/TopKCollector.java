@@ -0,0 +1,177 @@
+package com.yupi.yupao.utils;
+
+import java.util.Arrays;
+
+/**
+ * 有界 Top-K 收集器（基于原始类型数组的大顶堆）
+ * 按 (距离, id) 升序保留最小的 k 个元素，距离相同时 id 小的优先，保证结果稳定
+ * 内存 O(k)，插入 O(log k)，非线程安全
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+public class TopKCollector {
+
+    private final int k;
+
+    private final long[] ids;
+
+    private final int[] distances;
+
+    private int size = 0;
+
+    public TopKCollector(int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        this.k = k;
+        this.ids = new long[k];
+        this.distances = new int[k];
+    }
+
+    /**
+     * 尝试加入一个元素
+     *
+     * @param id
+     * @param distance
+     * @return 是否进入了当前的 Top-K
+     */
+    public boolean offer(long id, int distance) {
+        if (size < k) {
+            ids[size] = id;
+            distances[size] = distance;
+            siftUp(size++);
+            return true;
+        }
+        // 堆顶是当前最差的元素，不比它好就直接丢弃
+        if (!less(distance, id, distances[0], ids[0])) {
+            return false;
+        }
+        ids[0] = id;
+        distances[0] = distance;
+        siftDown(0);
+        return true;
+    }
+
+    /**
+     * 当前第 k 名的距离，未满时返回 {@link Integer#MAX_VALUE}
+     * 距离大于该值的元素一定进不了 Top-K，可用于提前剪枝
+     *
+     * @return
+     */
+    public int threshold() {
+        return size < k ? Integer.MAX_VALUE : distances[0];
+    }
+
+    /**
+     * 合并另一个收集器的结果
+     *
+     * @param other
+     */
+    public void merge(TopKCollector other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.ids[i], other.distances[i]);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size == k;
+    }
+
+    /**
+     * 按 (距离, id) 升序排列的 id
+     *
+     * @return
+     */
+    public long[] getSortedIds() {
+        int[] order = sortedOrder();
+        long[] result = new long[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = ids[order[i]];
+        }
+        return result;
+    }
+
+    /**
+     * 按 (距离, id) 升序排列的距离，与 {@link #getSortedIds()} 一一对应
+     *
+     * @return
+     */
+    public int[] getSortedDistances() {
+        int[] order = sortedOrder();
+        int[] result = new int[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = distances[order[i]];
+        }
+        return result;
+    }
+
+    /**
+     * 堆内下标按 (距离, id) 升序排列，k 很小，直接插入排序
+     */
+    private int[] sortedOrder() {
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            int j = i;
+            while (j > 0 && less(distances[i], ids[i], distances[order[j - 1]], ids[order[j - 1]])) {
+                order[j] = order[j - 1];
+                j--;
+            }
+            order[j] = i;
+        }
+        return order;
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!less(distances[parent], ids[parent], distances[index], ids[index])) {
+                break;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int left = (index << 1) + 1;
+            if (left >= size) {
+                break;
+            }
+            int largest = left;
+            int right = left + 1;
+            if (right < size && less(distances[left], ids[left], distances[right], ids[right])) {
+                largest = right;
+            }
+            if (!less(distances[index], ids[index], distances[largest], ids[largest])) {
+                break;
+            }
+            swap(index, largest);
+            index = largest;
+        }
+    }
+
+    private void swap(int i, int j) {
+        long id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+        int distance = distances[i];
+        distances[i] = distances[j];
+        distances[j] = distance;
+    }
+
+    private static boolean less(int distance1, long id1, int distance2, long id2) {
+        return distance1 < distance2 || (distance1 == distance2 && id1 < id2);
+    }
+
+    @Override
+    public String toString() {
+        return "TopKCollector{ids=" + Arrays.toString(getSortedIds())
+                + ", distances=" + Arrays.toString(getSortedDistances()) + "}";
+    }
+}
@@ -0,0 +1,32 @@
+package com.yupi.yupao.utils;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 事务工具类
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+public class TransactionUtils {
+
+    /**
+     * 在当前事务提交后执行（没有事务时立即执行）
+     * 用于更新内存索引、Redis 等事务外的数据，事务回滚时不执行，避免其中出现数据库里不存在的数据
+     *
+     * @param action
+     */
+    public static void runAfterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
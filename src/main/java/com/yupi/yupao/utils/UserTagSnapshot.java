@@ -0,0 +1,200 @@
+package com.yupi.yupao.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+/**
+ * 用户标签索引快照（列式存储，启动时内存映射读取，避免全表查询 MySQL）
+ * 文件格式：
+ * 头部    magic(int) version(int) watermark(long) tagCount(int) userCount(int) tagIdCount(int)
+ * 字典    tagCount 个 [长度(int) + UTF-8 字节]，下标即写入时的标签 id
+ * 用户 id userCount 个 long
+ * 偏移    userCount + 1 个 int，第 i 个用户的标签为 tagIds[offsets[i], offsets[i + 1])
+ * 标签 id tagIdCount 个 int
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+public class UserTagSnapshot {
+
+    private static final int MAGIC = 0x59505453;
+
+    private static final int VERSION = 1;
+
+    /**
+     * 快照数据对应的数据库时间点（毫秒），加载后从该时间点起按 updateTime 追增量
+     */
+    private final long watermark;
+
+    private final String[] tagNames;
+
+    private final LongBuffer userIds;
+
+    private final IntBuffer offsets;
+
+    private final IntBuffer tagIds;
+
+    private UserTagSnapshot(long watermark, String[] tagNames, LongBuffer userIds, IntBuffer offsets, IntBuffer tagIds) {
+        this.watermark = watermark;
+        this.tagNames = tagNames;
+        this.userIds = userIds;
+        this.offsets = offsets;
+        this.tagIds = tagIds;
+    }
+
+    /**
+     * 写入快照（先写临时文件再原子替换，写入中途崩溃不会损坏旧快照）
+     *
+     * @param path
+     * @param watermark     快照数据对应的数据库时间点
+     * @param tagDictionary 标签字典
+     * @param userTagMap    用户 id => 标签 id
+     * @throws IOException
+     */
+    public static void write(Path path, long watermark, TagDictionary tagDictionary, Map<Long, int[]> userTagMap) throws IOException {
+        // 先复制出列数据，写入期间索引仍可能被修改
+        int userCount = 0;
+        long[] userIdColumn = new long[userTagMap.size()];
+        int[][] tagIdsColumn = new int[userTagMap.size()][];
+        int tagIdCount = 0;
+        for (Map.Entry<Long, int[]> entry : userTagMap.entrySet()) {
+            if (userCount == userIdColumn.length) {
+                break;
+            }
+            userIdColumn[userCount] = entry.getKey();
+            tagIdsColumn[userCount] = entry.getValue();
+            tagIdCount += entry.getValue().length;
+            userCount++;
+        }
+        int tagCount = tagDictionary.size();
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try (OutputStream outputStream = Files.newOutputStream(tempPath);
+             DataOutputStream dataOutputStream = new DataOutputStream(new BufferedOutputStream(outputStream, 1 << 16))) {
+            dataOutputStream.writeInt(MAGIC);
+            dataOutputStream.writeInt(VERSION);
+            dataOutputStream.writeLong(watermark);
+            dataOutputStream.writeInt(tagCount);
+            dataOutputStream.writeInt(userCount);
+            dataOutputStream.writeInt(tagIdCount);
+            for (int i = 0; i < tagCount; i++) {
+                byte[] bytes = tagDictionary.getTag(i).getBytes(StandardCharsets.UTF_8);
+                dataOutputStream.writeInt(bytes.length);
+                dataOutputStream.write(bytes);
+            }
+            for (int i = 0; i < userCount; i++) {
+                dataOutputStream.writeLong(userIdColumn[i]);
+            }
+            int offset = 0;
+            dataOutputStream.writeInt(offset);
+            for (int i = 0; i < userCount; i++) {
+                offset += tagIdsColumn[i].length;
+                dataOutputStream.writeInt(offset);
+            }
+            for (int i = 0; i < userCount; i++) {
+                for (int tagId : tagIdsColumn[i]) {
+                    dataOutputStream.writeInt(tagId);
+                }
+            }
+        }
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 内存映射读取快照
+     *
+     * @param path
+     * @return
+     * @throws IOException 文件不存在或格式错误
+     */
+    public static UserTagSnapshot load(Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // 映射建立后关闭 channel 不影响读取
+            buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+        }
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("invalid user tag snapshot: " + path);
+            }
+            long watermark = buffer.getLong();
+            int tagCount = buffer.getInt();
+            int userCount = buffer.getInt();
+            int tagIdCount = buffer.getInt();
+            String[] tagNames = new String[tagCount];
+            for (int i = 0; i < tagCount; i++) {
+                byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                tagNames[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            LongBuffer userIds = slice(buffer, (long) userCount * Long.BYTES).asLongBuffer();
+            IntBuffer offsets = slice(buffer, (long) (userCount + 1) * Integer.BYTES).asIntBuffer();
+            IntBuffer tagIds = slice(buffer, (long) tagIdCount * Integer.BYTES).asIntBuffer();
+            return new UserTagSnapshot(watermark, tagNames, userIds, offsets, tagIds);
+        } catch (RuntimeException e) {
+            throw new IOException("invalid user tag snapshot: " + path, e);
+        }
+    }
+
+    public long getWatermark() {
+        return watermark;
+    }
+
+    /**
+     * 快照中的标签字典，下标即快照中的标签 id
+     *
+     * @return
+     */
+    public String[] getTagNames() {
+        return tagNames;
+    }
+
+    public int getUserCount() {
+        return userIds.limit();
+    }
+
+    public long getUserId(int index) {
+        return userIds.get(index);
+    }
+
+    /**
+     * 获取第 index 个用户的标签 id（快照中的 id，需按 {@link #getTagNames()} 重新映射）
+     *
+     * @param index
+     * @return
+     */
+    public int[] getTagIds(int index) {
+        int from = offsets.get(index);
+        int[] userTagIds = new int[offsets.get(index + 1) - from];
+        for (int i = 0; i < userTagIds.length; i++) {
+            userTagIds[i] = tagIds.get(from + i);
+        }
+        return userTagIds;
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, long length) {
+        if (length > buffer.remaining()) {
+            throw new IllegalStateException("truncated snapshot");
+        }
+        ByteBuffer slice = buffer.slice();
+        slice.limit((int) length);
+        buffer.position(buffer.position() + (int) length);
+        return slice;
+    }
+}
@@ -1,10 +1,13 @@
 package com.yupi.yupao.service;
 
 import com.yupi.yupao.utils.AlgorithmUtils;
+import com.yupi.yupao.utils.TagDictionary;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 /**
  * 算法工具类测试
@@ -42,4 +45,65 @@ public class AlgorithmUtilsTest {
         System.out.println(score2);
     }
 
+    @Test
+    void testCompareTagIds() {
+        TagDictionary tagDictionary = new TagDictionary();
+        int[] tagIds1 = tagDictionary.encode(Arrays.asList("Java", "大一", "男"));
+        int[] tagIds2 = tagDictionary.encode(Arrays.asList("Java", "大一", "女"));
+        int[] tagIds3 = tagDictionary.encode(Arrays.asList("Python", "大二", "女"));
+        Assertions.assertEquals(AlgorithmUtils.minDistance(Arrays.asList("Java", "大一", "男"), Arrays.asList("Java", "大一", "女")),
+                AlgorithmUtils.minDistance(tagIds1, tagIds2));
+        Assertions.assertEquals(1, AlgorithmUtils.minDistance(tagIds1, tagIds2));
+        Assertions.assertEquals(3, AlgorithmUtils.minDistance(tagIds1, tagIds3));
+        Assertions.assertEquals(3, AlgorithmUtils.minDistance(tagIds1, new int[0]));
+    }
+
+    @Test
+    void testCompareTagIdsWithThreshold() {
+        Random random = new Random(1);
+        for (int round = 0; round < 10000; round++) {
+            int[] tagIds1 = randomTagIds(random);
+            int[] tagIds2 = randomTagIds(random);
+            int maxDistance = random.nextInt(8);
+            int expected = AlgorithmUtils.minDistance(tagIds1, tagIds2);
+            int actual = AlgorithmUtils.minDistance(tagIds1, tagIds2, maxDistance);
+            if (expected <= maxDistance) {
+                Assertions.assertEquals(expected, actual);
+            } else {
+                Assertions.assertEquals(maxDistance + 1, actual);
+            }
+            Assertions.assertEquals(expected, AlgorithmUtils.minDistance(tagIds1, tagIds2, Integer.MAX_VALUE));
+        }
+        List<String> tagList1 = Arrays.asList("Java", "大一", "男");
+        List<String> tagList3 = Arrays.asList("Python", "大二", "女");
+        Assertions.assertEquals(3, AlgorithmUtils.minDistance(tagList1, tagList3, 3));
+        Assertions.assertEquals(2, AlgorithmUtils.minDistance(tagList1, tagList3, 1));
+    }
+
+    @Test
+    void testCompareTagIdsWeighted() {
+        Random random = new Random(2);
+        for (int round = 0; round < 10000; round++) {
+            int[] tagIds1 = randomTagIds(random);
+            int[] tagIds2 = randomTagIds(random);
+            // 代价全为 1 时与普通编辑距离一致
+            Assertions.assertEquals(AlgorithmUtils.minDistance(tagIds1, tagIds2),
+                    AlgorithmUtils.minDistance(tagIds1, tagIds2, Integer.MAX_VALUE, 1, (a, b) -> 1));
+        }
+        // 相近标签替换代价为 30
+        int[] tagIds1 = {1, 2};
+        int[] tagIds2 = {1, 3};
+        Assertions.assertEquals(30, AlgorithmUtils.minDistance(tagIds1, tagIds2, Integer.MAX_VALUE, 100, (a, b) -> 30));
+        Assertions.assertEquals(21, AlgorithmUtils.minDistance(tagIds1, tagIds2, 20, 100, (a, b) -> 30));
+        Assertions.assertEquals(100, AlgorithmUtils.minDistance(new int[]{1}, new int[0], 100, 100, (a, b) -> 30));
+    }
+
+    private int[] randomTagIds(Random random) {
+        int[] tagIds = new int[random.nextInt(10)];
+        for (int i = 0; i < tagIds.length; i++) {
+            tagIds[i] = random.nextInt(6);
+        }
+        return tagIds;
+    }
+
 }
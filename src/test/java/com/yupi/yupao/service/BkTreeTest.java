@@ -0,0 +1,76 @@
+package com.yupi.yupao.service;
+
+import com.yupi.yupao.utils.AlgorithmUtils;
+import com.yupi.yupao.utils.BkTree;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * BK 树测试
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+public class BkTreeTest {
+
+    @Test
+    void testSearch() {
+        BkTree bkTree = new BkTree();
+        for (String term : Arrays.asList("java", "javascript", "go", "python", "大一", "大二", "java")) {
+            bkTree.add(term);
+        }
+        Assertions.assertEquals(6, bkTree.size());
+        Assertions.assertEquals(Collections.singletonList("java"), bkTree.search("jvaa", 2));
+        Assertions.assertEquals(Collections.singletonList("python"), bkTree.search("pyhton", 2));
+        // 距离相同时按添加顺序
+        Assertions.assertEquals(Arrays.asList("大一", "大二"), bkTree.search("大三", 1));
+        Assertions.assertEquals(Collections.singletonList("go"), bkTree.search("go", 0));
+        Assertions.assertTrue(bkTree.search("rust", 1).isEmpty());
+        Assertions.assertTrue(new BkTree().search("java", 2).isEmpty());
+    }
+
+    /**
+     * 与逐个计算编辑距离的结果一致
+     */
+    @Test
+    void testSearchMatchesLinearScan() {
+        Random random = new Random(42);
+        List<String> termList = new ArrayList<>();
+        BkTree bkTree = new BkTree();
+        for (int i = 0; i < 2000; i++) {
+            String term = randomWord(random);
+            if (!termList.contains(term)) {
+                termList.add(term);
+            }
+            bkTree.add(term);
+        }
+        for (int i = 0; i < 100; i++) {
+            String query = randomWord(random);
+            int radius = random.nextInt(3);
+            List<String> expected = new ArrayList<>();
+            for (String term : termList) {
+                if (AlgorithmUtils.minDistance(term, query) <= radius) {
+                    expected.add(term);
+                }
+            }
+            List<String> actual = bkTree.search(query, radius);
+            Collections.sort(expected);
+            Collections.sort(actual);
+            Assertions.assertEquals(expected, actual, query);
+        }
+    }
+
+    private static String randomWord(Random random) {
+        char[] chars = new char[3 + random.nextInt(5)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(6));
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,60 @@
+package com.yupi.yupao.service;
+
+import com.yupi.yupao.manager.TwoLevelCacheManager;
+import com.yupi.yupao.model.dto.CacheEntry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+/**
+ * 缓存提前刷新（XFetch）测试
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+public class CacheEarlyRefreshTest {
+
+    @Test
+    void testShouldRefreshEarly() {
+        CacheEntry entry = new CacheEntry();
+        entry.setSoftExpireTime(10000);
+        entry.setHardExpireTime(20000);
+        entry.setLoadMillis(100);
+        // 关闭或没有加载耗时时不提前刷新
+        Assertions.assertFalse(TwoLevelCacheManager.shouldRefreshEarly(9999, entry, 0, 0.001));
+        CacheEntry noCostEntry = new CacheEntry();
+        noCostEntry.setSoftExpireTime(10000);
+        Assertions.assertFalse(TwoLevelCacheManager.shouldRefreshEarly(9999, noCostEntry, 1, 0.001));
+        // 已到软过期一定刷新，远离软过期几乎不刷新
+        Assertions.assertTrue(TwoLevelCacheManager.shouldRefreshEarly(10000, entry, 1, 0.99));
+        Assertions.assertFalse(TwoLevelCacheManager.shouldRefreshEarly(0, entry, 1, 0.5));
+        Assertions.assertTrue(TwoLevelCacheManager.shouldRefreshEarly(0, entry, 1, 0));
+    }
+
+    /**
+     * 越接近软过期，提前刷新的概率越大
+     */
+    @Test
+    void testProbabilityRisesNearExpiry() {
+        CacheEntry entry = new CacheEntry();
+        entry.setSoftExpireTime(10000);
+        entry.setLoadMillis(100);
+        Random random = new Random(42);
+        int[] refreshCounts = new int[3];
+        long[] nows = {9700, 9900, 9990};
+        for (int i = 0; i < 10000; i++) {
+            for (int j = 0; j < nows.length; j++) {
+                if (TwoLevelCacheManager.shouldRefreshEarly(nows[j], entry, 1, random.nextDouble())) {
+                    refreshCounts[j]++;
+                }
+            }
+        }
+        // 理论概率为 e^(-剩余时间 / 加载耗时)：约 5%、37%、90%
+        Assertions.assertTrue(refreshCounts[0] < refreshCounts[1]);
+        Assertions.assertTrue(refreshCounts[1] < refreshCounts[2]);
+        Assertions.assertEquals(0.05, refreshCounts[0] / 10000.0, 0.02);
+        Assertions.assertEquals(0.37, refreshCounts[1] / 10000.0, 0.03);
+        Assertions.assertEquals(0.90, refreshCounts[2] / 10000.0, 0.03);
+    }
+}
@@ -0,0 +1,48 @@
+package com.yupi.yupao.service;
+
+import com.yupi.yupao.manager.MatchScoringManager;
+import com.yupi.yupao.utils.AlgorithmUtils;
+import com.yupi.yupao.utils.TopKCollector;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 匹配打分引擎测试
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+public class MatchScoringManagerTest {
+
+    @Test
+    void testParallelEqualsSequential() {
+        Random random = new Random(7);
+        Map<Long, int[]> userTagMap = new HashMap<>();
+        long[] candidateIds = new long[20000];
+        for (int i = 0; i < candidateIds.length; i++) {
+            int[] tagIds = new int[1 + random.nextInt(6)];
+            for (int j = 0; j < tagIds.length; j++) {
+                tagIds[j] = random.nextInt(30);
+            }
+            candidateIds[i] = i + 1;
+            userTagMap.put(candidateIds[i], tagIds);
+        }
+        int[] tagIds = {1, 2, 3, 4};
+        TopKCollector expected = new TopKCollector(20);
+        for (long candidateId : candidateIds) {
+            expected.offer(candidateId, AlgorithmUtils.minDistance(tagIds, userTagMap.get(candidateId)));
+        }
+        MatchScoringManager matchScoringManager = new MatchScoringManager(4, 4, 1000);
+        try {
+            TopKCollector actual = matchScoringManager.score(tagIds, candidateIds, userTagMap::get, 20);
+            Assertions.assertArrayEquals(expected.getSortedIds(), actual.getSortedIds());
+            Assertions.assertArrayEquals(expected.getSortedDistances(), actual.getSortedDistances());
+        } finally {
+            matchScoringManager.shutdown();
+        }
+    }
+}
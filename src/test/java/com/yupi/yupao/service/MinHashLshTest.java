@@ -0,0 +1,35 @@
+package com.yupi.yupao.service;
+
+import com.yupi.yupao.utils.MinHashLsh;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+/**
+ * MinHash LSH 测试
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+public class MinHashLshTest {
+
+    @Test
+    void testCandidates() {
+        MinHashLsh minHashLsh = new MinHashLsh(16, 3, 1L);
+        minHashLsh.put(1L, new int[]{1, 2, 3});
+        minHashLsh.put(2L, new int[]{3, 2, 1});
+        minHashLsh.put(3L, new int[]{100, 200, 300});
+        Set<Long> candidateIdSet = minHashLsh.getCandidateUserIds(new int[]{1, 2, 3});
+        // 标签集合相同（与顺序无关）一定成为候选，完全不相交的不会
+        Assertions.assertTrue(candidateIdSet.contains(1L));
+        Assertions.assertTrue(candidateIdSet.contains(2L));
+        Assertions.assertFalse(candidateIdSet.contains(3L));
+        // 更新和删除后旧桶中不再有该用户
+        minHashLsh.put(1L, new int[]{100, 200, 300});
+        minHashLsh.put(2L, new int[0]);
+        candidateIdSet = minHashLsh.getCandidateUserIds(new int[]{1, 2, 3});
+        Assertions.assertTrue(candidateIdSet.isEmpty());
+        Assertions.assertTrue(minHashLsh.getCandidateUserIds(new int[]{100, 200, 300}).contains(1L));
+    }
+}
@@ -0,0 +1,80 @@
+package com.yupi.yupao.service;
+
+import com.yupi.yupao.model.dto.CacheEntry;
+import com.yupi.yupao.model.dto.MatchCacheEntry;
+import com.yupi.yupao.model.dto.RecommendCacheEntry;
+import com.yupi.yupao.utils.RedisValueSerializer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * Redis 值序列化测试
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+public class RedisValueSerializerTest {
+
+    @Test
+    void testRoundTrip() {
+        CacheEntry entry = newRecommendEntry(10);
+        MatchCacheEntry matchCacheEntry = new MatchCacheEntry();
+        matchCacheEntry.setEpoch(3);
+        matchCacheEntry.setSeq(7);
+        matchCacheEntry.setUserIds(new long[]{5, 9});
+        matchCacheEntry.setDistances(new int[]{1, 2});
+        for (RedisValueSerializer.Codec codec : RedisValueSerializer.Codec.values()) {
+            RedisValueSerializer serializer = new RedisValueSerializer(codec, 0);
+            Assertions.assertEquals(entry, serializer.deserialize(serializer.serialize(entry)), codec.name());
+            Assertions.assertEquals(matchCacheEntry, serializer.deserialize(serializer.serialize(matchCacheEntry)), codec.name());
+            Assertions.assertNull(serializer.deserialize(serializer.serialize(null)));
+        }
+    }
+
+    /**
+     * 旧版本写入的 JDK 序列化数据，切换编码后仍能读取
+     */
+    @Test
+    void testReadLegacy() {
+        CacheEntry entry = newRecommendEntry(10);
+        byte[] legacyBytes = new JdkSerializationRedisSerializer().serialize(entry);
+        Assertions.assertArrayEquals(legacyBytes, new RedisValueSerializer(RedisValueSerializer.Codec.LEGACY, 1).serialize(entry));
+        RedisValueSerializer serializer = new RedisValueSerializer(RedisValueSerializer.Codec.JSON, 1024);
+        Assertions.assertEquals(entry, serializer.deserialize(legacyBytes));
+        Assertions.assertThrows(SerializationException.class, () -> serializer.deserialize(new byte[]{1, 2, 3}));
+    }
+
+    @Test
+    void testCompress() {
+        CacheEntry entry = newRecommendEntry(1000);
+        RedisValueSerializer plain = new RedisValueSerializer(RedisValueSerializer.Codec.JSON, 0);
+        RedisValueSerializer compressed = new RedisValueSerializer(RedisValueSerializer.Codec.JSON, 1024);
+        byte[] plainBytes = plain.serialize(entry);
+        byte[] compressedBytes = compressed.serialize(entry);
+        Assertions.assertTrue(compressedBytes.length < plainBytes.length);
+        // 读取时按标志位解压，与写入配置无关
+        Assertions.assertEquals(entry, plain.deserialize(compressedBytes));
+        Assertions.assertEquals(entry, compressed.deserialize(plainBytes));
+        // 不到阈值不压缩
+        CacheEntry smallEntry = newRecommendEntry(2);
+        Assertions.assertArrayEquals(plain.serialize(smallEntry), compressed.serialize(smallEntry));
+    }
+
+    private static CacheEntry newRecommendEntry(int size) {
+        long[] userIds = new long[size];
+        for (int i = 0; i < size; i++) {
+            userIds[i] = 100000 + i * 7L;
+        }
+        RecommendCacheEntry recommendCacheEntry = new RecommendCacheEntry();
+        recommendCacheEntry.setUserIds(userIds);
+        recommendCacheEntry.setTotal(size * 3L);
+        CacheEntry entry = new CacheEntry();
+        entry.setValue(recommendCacheEntry);
+        entry.setSoftExpireTime(1700000030000L);
+        entry.setHardExpireTime(1700000300000L);
+        entry.setLoadMillis(12);
+        return entry;
+    }
+}
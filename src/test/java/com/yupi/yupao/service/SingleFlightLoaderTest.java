@@ -0,0 +1,73 @@
+package com.yupi.yupao.service;
+
+import com.yupi.yupao.manager.SingleFlightLoader;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 合并加载测试（只测本节点内合并，不依赖 Redis）
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+public class SingleFlightLoaderTest {
+
+    private static final int THREADS = 8;
+
+    @Test
+    void testLoadLocallyCoalesces() throws Exception {
+        SingleFlightLoader singleFlightLoader = new SingleFlightLoader();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Object>> futureList = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futureList.add(executorService.submit(() -> singleFlightLoader.loadLocally("key", () -> {
+                    loads.incrementAndGet();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return new Object();
+                })));
+            }
+            // 等其他线程都进入等待后再放行加载
+            long deadline = System.currentTimeMillis() + 5000;
+            while (singleFlightLoader.getLocalCoalescedCount() < THREADS - 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+            Object first = futureList.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<Object> future : futureList) {
+                Assertions.assertSame(first, future.get(5, TimeUnit.SECONDS));
+            }
+            Assertions.assertEquals(1, loads.get());
+            Assertions.assertEquals(1, singleFlightLoader.getLoadCount());
+            // 加载完成后不再合并
+            singleFlightLoader.loadLocally("key", Object::new);
+            Assertions.assertEquals(2, singleFlightLoader.getLoadCount());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    void testLoadLocallyRethrows() {
+        SingleFlightLoader singleFlightLoader = new SingleFlightLoader();
+        Assertions.assertThrows(IllegalStateException.class, () -> singleFlightLoader.loadLocally("key", () -> {
+            throw new IllegalStateException();
+        }));
+        Assertions.assertEquals("ok", singleFlightLoader.loadLocally("key", () -> "ok"));
+    }
+}
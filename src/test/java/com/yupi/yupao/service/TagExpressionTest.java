@@ -0,0 +1,89 @@
+package com.yupi.yupao.service;
+
+import com.yupi.yupao.utils.TagExpression;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 标签布尔表达式测试
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+public class TagExpressionTest {
+
+    /**
+     * 用户 i 的标签
+     */
+    private final List<List<String>> userTags = Arrays.asList(
+            Arrays.asList("Java", "大一"),
+            Arrays.asList("Go"),
+            Arrays.asList("Java", "Go", "大二"),
+            Arrays.asList("Python", "大一"),
+            Arrays.asList("C++", "Java")
+    );
+
+    private final Map<String, RoaringBitmap> tagBitmaps = new HashMap<>();
+
+    private final RoaringBitmap universe = new RoaringBitmap();
+
+    {
+        for (int userId = 0; userId < userTags.size(); userId++) {
+            universe.add(userId);
+            for (String tag : userTags.get(userId)) {
+                tagBitmaps.computeIfAbsent(tag, key -> new RoaringBitmap()).add(userId);
+            }
+        }
+    }
+
+    @Test
+    void testEvaluate() {
+        assertMatches("(Java OR Go) AND NOT 大一", 1, 2, 4);
+        assertMatches("Java AND Go", 2);
+        assertMatches("java or Python", 3);
+        assertMatches("NOT Java", 1, 3);
+        assertMatches("NOT NOT Go", 1, 2);
+        assertMatches("Java OR Go AND 大二", 0, 2, 4);
+        assertMatches("\"C++\" AND NOT (Go OR 大一)", 4);
+        assertMatches("Rust");
+        assertMatches("NOT Rust", 0, 1, 2, 3, 4);
+    }
+
+    @Test
+    void testInvalid() {
+        for (String expression : new String[]{"", "Java AND", "(Java", "Java)", "Java Go", "\"Java", "NOT", "AND Java"}) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> TagExpression.parse(expression), expression);
+        }
+        StringBuilder nested = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            nested.append('(');
+        }
+        Assertions.assertThrows(IllegalArgumentException.class, () -> TagExpression.parse(nested + "Java"));
+    }
+
+    /**
+     * 位图求值和逐个用户判断的结果都要等于期望值，且不能修改索引中的位图
+     */
+    private void assertMatches(String expression, int... expectedUserIds) {
+        TagExpression tagExpression = TagExpression.parse(expression);
+        int[] cardinalities = tagBitmaps.values().stream().mapToInt(RoaringBitmap::getCardinality).toArray();
+        RoaringBitmap result = tagExpression.evaluate(tagBitmaps::get, universe);
+        Assertions.assertArrayEquals(expectedUserIds, result.toArray(), expression);
+        Assertions.assertArrayEquals(cardinalities, tagBitmaps.values().stream().mapToInt(RoaringBitmap::getCardinality).toArray());
+        Assertions.assertEquals(userTags.size(), universe.getCardinality());
+        int[] testedUserIds = new int[userTags.size()];
+        int count = 0;
+        for (int userId = 0; userId < userTags.size(); userId++) {
+            if (tagExpression.test(userTags.get(userId))) {
+                testedUserIds[count++] = userId;
+            }
+        }
+        Assertions.assertArrayEquals(expectedUserIds, Arrays.copyOf(testedUserIds, count), expression);
+    }
+}
@@ -0,0 +1,56 @@
+package com.yupi.yupao.service;
+
+import com.yupi.yupao.utils.TagFacetCounter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+/**
+ * 标签计数器测试
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+public class TagFacetCounterTest {
+
+    @Test
+    void testAdd() {
+        TagFacetCounter counter = new TagFacetCounter();
+        counter.add(new int[]{1, 2, 3}, 1);
+        counter.add(new int[]{2, 1}, 1);
+        counter.add(new int[]{3, 3}, 1);
+        counter.add(null, 1);
+        Assertions.assertEquals(2, counter.getTagCount(1));
+        Assertions.assertEquals(2, counter.getTagCount(3));
+        Assertions.assertEquals(2, counter.getPairCount(2, 1));
+        Assertions.assertEquals(1, counter.getPairCount(1, 3));
+
+        // 用户标签变更：先减旧标签再加新标签
+        counter.add(new int[]{2, 1}, -1);
+        counter.add(new int[]{4}, 1);
+        Assertions.assertEquals(1, counter.getTagCount(1));
+        Assertions.assertEquals(1, counter.getPairCount(1, 2));
+        Assertions.assertEquals(1, counter.getTagCount(4));
+
+        List<int[]> topTags = counter.topTags(2);
+        Assertions.assertEquals(2, topTags.size());
+        Assertions.assertArrayEquals(new int[]{3, 2}, topTags.get(0));
+        Assertions.assertArrayEquals(new int[]{1, 1}, topTags.get(1));
+        List<int[]> topPairs = counter.topPairs(10);
+        Assertions.assertEquals(3, topPairs.size());
+        Assertions.assertArrayEquals(new int[]{1, 2, 1}, topPairs.get(0));
+    }
+
+    @Test
+    void testCountTagDiff() {
+        TagFacetCounter counter1 = new TagFacetCounter();
+        TagFacetCounter counter2 = new TagFacetCounter();
+        counter1.add(new int[]{1, 2}, 1);
+        counter2.add(new int[]{1, 2}, 1);
+        Assertions.assertEquals(0, counter1.countTagDiff(counter2));
+        counter2.add(new int[]{2, 3}, 1);
+        Assertions.assertEquals(2, counter1.countTagDiff(counter2));
+        Assertions.assertEquals(2, counter2.countTagDiff(counter1));
+    }
+}
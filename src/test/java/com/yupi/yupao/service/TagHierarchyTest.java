@@ -0,0 +1,57 @@
+package com.yupi.yupao.service;
+
+import com.yupi.yupao.utils.TagHierarchy;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+/**
+ * 标签层级测试
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+public class TagHierarchyTest {
+
+    /**
+     * 0 技术
+     * ├── 1 Java
+     * │   ├── 3 Spring
+     * │   └── 4 MyBatis
+     * └── 2 Python
+     * 5 大一（无父标签）
+     */
+    private final TagHierarchy tagHierarchy = new TagHierarchy(new int[]{-1, 0, 0, 1, 1, -1});
+
+    @Test
+    void testHops() {
+        Assertions.assertEquals(0, tagHierarchy.hops(3, 3, 2));
+        Assertions.assertEquals(1, tagHierarchy.hops(1, 3, 2));
+        Assertions.assertEquals(1, tagHierarchy.hops(3, 1, 2));
+        Assertions.assertEquals(2, tagHierarchy.hops(3, 4, 2));
+        Assertions.assertEquals(2, tagHierarchy.hops(1, 2, 2));
+        Assertions.assertEquals(-1, tagHierarchy.hops(3, 2, 2));
+        Assertions.assertEquals(3, tagHierarchy.hops(3, 2, 3));
+        Assertions.assertEquals(-1, tagHierarchy.hops(3, 5, 5));
+        // 不在树中的标签
+        Assertions.assertEquals(-1, tagHierarchy.hops(3, 100, 5));
+    }
+
+    @Test
+    void testExpand() {
+        int[] expanded = tagHierarchy.expand(new int[]{3, 100}, 1);
+        Arrays.sort(expanded);
+        Assertions.assertArrayEquals(new int[]{1, 3, 100}, expanded);
+        expanded = tagHierarchy.expand(new int[]{3}, 2);
+        Arrays.sort(expanded);
+        Assertions.assertArrayEquals(new int[]{0, 1, 3, 4}, expanded);
+        Assertions.assertArrayEquals(new int[]{5}, tagHierarchy.expand(new int[]{5}, 2));
+    }
+
+    @Test
+    void testCycle() {
+        TagHierarchy cycle = new TagHierarchy(new int[]{1, 0});
+        Assertions.assertEquals(1, cycle.hops(0, 1, 2));
+    }
+}
@@ -0,0 +1,53 @@
+package com.yupi.yupao.service;
+
+import com.yupi.yupao.manager.UserTagIndexManager;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 标签搜索大小写规则测试（本地索引与全表扫描结果一致，均不区分大小写）
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+public class TagSearchCaseTest {
+
+    @Test
+    void testIndexAndScanAgree() {
+        Map<Long, String> userTagsMap = new LinkedHashMap<>();
+        userTagsMap.put(1L, "[\"java\",\"大一\"]");
+        userTagsMap.put(2L, "[\"Java\",\"Python\"]");
+        userTagsMap.put(3L, "[\"python\"]");
+        userTagsMap.put(4L, "[\"JAVA\",\"java\",\"大一\"]");
+        UserTagIndexManager userTagIndexManager = new UserTagIndexManager();
+        for (Map.Entry<Long, String> entry : userTagsMap.entrySet()) {
+            userTagIndexManager.updateUserTags(entry.getKey(), entry.getValue());
+        }
+        List<List<String>> queryList = Arrays.asList(
+                Arrays.asList("Java"),
+                Arrays.asList("java"),
+                Arrays.asList("PYTHON", "java"),
+                Arrays.asList("java", "Java", "大一"),
+                Arrays.asList("go"));
+        for (List<String> tagNameList : queryList) {
+            Set<Long> scanUserIdSet = new HashSet<>();
+            for (Map.Entry<Long, String> entry : userTagsMap.entrySet()) {
+                if (UserTagIndexManager.hasAllTags(UserTagIndexManager.parseTags(entry.getValue()), tagNameList)) {
+                    scanUserIdSet.add(entry.getKey());
+                }
+            }
+            Assertions.assertEquals(scanUserIdSet, userTagIndexManager.getUserIdsHavingAllTags(tagNameList), tagNameList.toString());
+        }
+        Assertions.assertEquals(new HashSet<>(Arrays.asList(1L, 2L, 4L)),
+                userTagIndexManager.getUserIdsHavingAllTags(Arrays.asList("Java")));
+        Assertions.assertEquals(new HashSet<>(Arrays.asList(1L, 4L)),
+                userTagIndexManager.getUserIdsHavingAllTags(Arrays.asList("java", "Java", "大一")));
+    }
+}
@@ -0,0 +1,43 @@
+package com.yupi.yupao.service;
+
+import com.yupi.yupao.utils.TagSuggestTrie;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 标签补全字典树测试
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+public class TagSuggestTrieTest {
+
+    @Test
+    void testSuggest() {
+        Map<String, Integer> tagPopularityMap = new HashMap<>();
+        tagPopularityMap.put("Java", 100);
+        tagPopularityMap.put("JavaScript", 80);
+        tagPopularityMap.put("jQuery", 5);
+        tagPopularityMap.put("Jenkins", 5);
+        tagPopularityMap.put("Go", 50);
+        tagPopularityMap.put("大一", 30);
+        tagPopularityMap.put("大二", 40);
+        TagSuggestTrie trie = new TagSuggestTrie(tagPopularityMap, 3);
+
+        Assertions.assertEquals(Arrays.asList("Java", "JavaScript", "Jenkins"), trie.suggest("j", 10));
+        Assertions.assertEquals(Arrays.asList("Java", "JavaScript"), trie.suggest("JAVA", 10));
+        Assertions.assertEquals(Collections.singletonList("JavaScript"), trie.suggest("javas", 10));
+        Assertions.assertEquals(Collections.singletonList("Java"), trie.suggest("ja", 1));
+        Assertions.assertEquals(Arrays.asList("大二", "大一"), trie.suggest("大", 10));
+        // 空前缀返回最热门的标签
+        Assertions.assertEquals(Arrays.asList("Java", "JavaScript", "Go"), trie.suggest("", 10));
+        Assertions.assertTrue(trie.suggest("python", 10).isEmpty());
+        Assertions.assertTrue(trie.suggest("javascripts", 10).isEmpty());
+        Assertions.assertTrue(TagSuggestTrie.EMPTY.suggest("j", 10).isEmpty());
+    }
+}
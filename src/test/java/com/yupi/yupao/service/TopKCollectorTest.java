@@ -0,0 +1,55 @@
+package com.yupi.yupao.service;
+
+import com.yupi.yupao.utils.TopKCollector;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+/**
+ * Top-K 收集器测试
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+public class TopKCollectorTest {
+
+    @Test
+    void testKeepSmallest() {
+        TopKCollector topKCollector = new TopKCollector(3);
+        Assertions.assertEquals(Integer.MAX_VALUE, topKCollector.threshold());
+        topKCollector.offer(1L, 5);
+        topKCollector.offer(2L, 1);
+        topKCollector.offer(3L, 4);
+        Assertions.assertEquals(5, topKCollector.threshold());
+        Assertions.assertTrue(topKCollector.offer(4L, 2));
+        Assertions.assertFalse(topKCollector.offer(5L, 9));
+        Assertions.assertArrayEquals(new long[]{2L, 4L, 3L}, topKCollector.getSortedIds());
+        Assertions.assertArrayEquals(new int[]{1, 2, 4}, topKCollector.getSortedDistances());
+    }
+
+    @Test
+    void testTieBreakById() {
+        TopKCollector topKCollector = new TopKCollector(2);
+        topKCollector.offer(9L, 1);
+        topKCollector.offer(7L, 1);
+        topKCollector.offer(8L, 1);
+        Assertions.assertArrayEquals(new long[]{7L, 8L}, topKCollector.getSortedIds());
+    }
+
+    @Test
+    void testMergeEqualsSingle() {
+        Random random = new Random(42);
+        TopKCollector all = new TopKCollector(20);
+        TopKCollector left = new TopKCollector(20);
+        TopKCollector right = new TopKCollector(20);
+        for (long id = 0; id < 10000; id++) {
+            int distance = random.nextInt(50);
+            all.offer(id, distance);
+            (id % 2 == 0 ? left : right).offer(id, distance);
+        }
+        left.merge(right);
+        Assertions.assertArrayEquals(all.getSortedIds(), left.getSortedIds());
+        Assertions.assertArrayEquals(all.getSortedDistances(), left.getSortedDistances());
+    }
+}
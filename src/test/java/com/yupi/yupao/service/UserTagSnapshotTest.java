@@ -0,0 +1,62 @@
+package com.yupi.yupao.service;
+
+import com.yupi.yupao.utils.TagDictionary;
+import com.yupi.yupao.utils.UserTagSnapshot;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 用户标签索引快照测试
+ *
+ * @author <a href="https://github.com/liyupi">程序员鱼皮</a>
+ * @from <a href="https://yupi.icu">编程导航知识星球</a>
+ */
+public class UserTagSnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testWriteAndLoad() throws IOException {
+        TagDictionary tagDictionary = new TagDictionary();
+        Map<Long, int[]> userTagMap = new HashMap<>();
+        userTagMap.put(1L, tagDictionary.encode(Arrays.asList("java", "大一", "男")));
+        userTagMap.put(2L, tagDictionary.encode(Arrays.asList("python")));
+        userTagMap.put(3L, tagDictionary.encode(Arrays.asList("java", "python")));
+        Path path = tempDir.resolve("snapshot");
+        UserTagSnapshot.write(path, 123456L, tagDictionary, userTagMap);
+
+        UserTagSnapshot snapshot = UserTagSnapshot.load(path);
+        Assertions.assertEquals(123456L, snapshot.getWatermark());
+        Assertions.assertArrayEquals(new String[]{"java", "大一", "男", "python"}, snapshot.getTagNames());
+        Assertions.assertEquals(3, snapshot.getUserCount());
+        Map<Long, int[]> loadedMap = new HashMap<>();
+        for (int i = 0; i < snapshot.getUserCount(); i++) {
+            loadedMap.put(snapshot.getUserId(i), snapshot.getTagIds(i));
+        }
+        Assertions.assertEquals(userTagMap.keySet(), loadedMap.keySet());
+        for (Map.Entry<Long, int[]> entry : userTagMap.entrySet()) {
+            Assertions.assertArrayEquals(entry.getValue(), loadedMap.get(entry.getKey()));
+        }
+    }
+
+    @Test
+    void testLoadTruncated() throws IOException {
+        TagDictionary tagDictionary = new TagDictionary();
+        Map<Long, int[]> userTagMap = new HashMap<>();
+        userTagMap.put(1L, tagDictionary.encode(Arrays.asList("java", "python")));
+        Path path = tempDir.resolve("snapshot");
+        UserTagSnapshot.write(path, 0L, tagDictionary, userTagMap);
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 4));
+        Assertions.assertThrows(IOException.class, () -> UserTagSnapshot.load(path));
+    }
+}